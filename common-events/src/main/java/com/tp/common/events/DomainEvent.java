@@ -0,0 +1,11 @@
+package com.tp.common.events;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Instant;
+
+// What goes over the wire: id is the outbox row id, unique and increasing per source service.
+// Delivery is at least once, so consumers must tolerate duplicates.
+public record DomainEvent(Long id, String source, String aggregateType, String aggregateId, String type,
+                          Instant occurredAt, JsonNode payload) {
+}
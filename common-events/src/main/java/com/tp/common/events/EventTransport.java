@@ -0,0 +1,9 @@
+package com.tp.common.events;
+
+import java.util.List;
+
+// Delivers a batch of events in order. Returning normally means the whole batch was accepted;
+// throwing leaves it in the outbox to be sent again.
+public interface EventTransport {
+    void publish(List<DomainEvent> events);
+}
@@ -0,0 +1,66 @@
+package com.tp.common.events;
+
+import com.tp.common.security.ServiceTokenProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.ClientHttpRequestFactories;
+import org.springframework.boot.web.client.ClientHttpRequestFactorySettings;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.List;
+
+// POSTs every batch to /api/events on each registered instance of the subscribed services
+// (app.events.http.subscribers, Eureka service ids), so every instance can refresh its own caches.
+// The relay has no user token to forward: it sends the service's own client-credentials token, and subscribers
+// only accept events from callers with the SERVICE role.
+// A subscriber with no instance up gets nothing: today's consumers only hold in-memory state that starts empty.
+@Component
+@ConditionalOnProperty(name = "app.events.transport", havingValue = "http")
+public class HttpEventTransport implements EventTransport {
+    private static final Logger log = LoggerFactory.getLogger(HttpEventTransport.class);
+
+    private final DiscoveryClient discoveryClient;
+    private final RestClient restClient;
+    private final List<String> subscribers;
+    private final ServiceTokenProvider serviceTokens;
+
+    public HttpEventTransport(DiscoveryClient discoveryClient, RestClient.Builder builder,
+                              ServiceTokenProvider serviceTokens,
+                              @Value("${app.events.http.subscribers:}") List<String> subscribers) {
+        this.discoveryClient = discoveryClient;
+        this.restClient = builder
+                .requestFactory(ClientHttpRequestFactories.get(ClientHttpRequestFactorySettings.DEFAULTS
+                        .withConnectTimeout(Duration.ofSeconds(2))
+                        .withReadTimeout(Duration.ofSeconds(5))))
+                .build();
+        this.subscribers = subscribers;
+        this.serviceTokens = serviceTokens;
+    }
+
+    @Override
+    public void publish(List<DomainEvent> events) {
+        String token = serviceTokens.getToken();
+        for (String subscriber : subscribers) {
+            List<ServiceInstance> instances = discoveryClient.getInstances(subscriber);
+            if (instances.isEmpty()) {
+                log.debug("No {} instance registered, {} events not delivered to it", subscriber, events.size());
+            }
+            for (ServiceInstance instance : instances) {
+                restClient.post()
+                        .uri(instance.getUri().resolve("/api/events"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .headers(headers -> headers.setBearerAuth(token))
+                        .body(events)
+                        .retrieve()
+                        .toBodilessEntity();
+            }
+        }
+    }
+}
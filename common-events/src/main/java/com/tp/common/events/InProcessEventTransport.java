@@ -0,0 +1,23 @@
+package com.tp.common.events;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Hands events to @EventListener(DomainEvent) beans of this application
+@Component
+@ConditionalOnProperty(name = "app.events.transport", havingValue = "in-process", matchIfMissing = true)
+public class InProcessEventTransport implements EventTransport {
+    private final ApplicationEventPublisher publisher;
+
+    public InProcessEventTransport(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void publish(List<DomainEvent> events) {
+        events.forEach(publisher::publishEvent);
+    }
+}
@@ -0,0 +1,64 @@
+package com.tp.common.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Function;
+
+// Records an event in the caller's transaction, so it is published if and only if the change commits
+@Component
+public class Outbox {
+    private static final String INSERT = "INSERT INTO outbox_event (aggregate_type, aggregate_id, type, payload, occurred_at) "
+            + "VALUES (?, ?, ?, ?, ?)";
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    public Outbox(OutboxRepository outboxRepository, ObjectMapper objectMapper, JdbcTemplate jdbcTemplate) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String aggregateType, Object aggregateId, String type, Object payload) {
+        outboxRepository.save(OutboxEvent.builder()
+                .aggregateType(aggregateType)
+                .aggregateId(String.valueOf(aggregateId))
+                .type(type)
+                .payload(toJson(type, payload))
+                .occurredAt(Instant.now())
+                .build());
+    }
+
+    // One event per aggregate (payload: the aggregate), inserted in a single JDBC batch
+    @Transactional(propagation = Propagation.MANDATORY)
+    public <T> void recordAll(String aggregateType, List<T> aggregates,
+                              Function<T, Object> aggregateId, Function<T, String> type) {
+        OffsetDateTime occurredAt = Instant.now().atOffset(ZoneOffset.UTC);
+        jdbcTemplate.batchUpdate(INSERT, aggregates, aggregates.size(), (ps, aggregate) -> {
+            ps.setString(1, aggregateType);
+            ps.setString(2, String.valueOf(aggregateId.apply(aggregate)));
+            ps.setString(3, type.apply(aggregate));
+            ps.setString(4, toJson(type.apply(aggregate), aggregate));
+            ps.setObject(5, occurredAt);
+        });
+    }
+
+    private String toJson(String type, Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize " + type + " event", e);
+        }
+    }
+}
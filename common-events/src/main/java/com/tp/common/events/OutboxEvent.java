@@ -0,0 +1,37 @@
+package com.tp.common.events;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+
+// A change written in the same transaction as the data it describes, waiting for OutboxRelay to publish it
+@Entity
+@Table(indexes = @Index(name = "idx_outbox_pending", columnList = "publishedAt, id"))
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String aggregateType;
+    private String aggregateId;
+    private String type;
+    // JSON document
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String payload;
+    @Column(nullable = false)
+    private Instant occurredAt;
+    private Instant publishedAt;
+}
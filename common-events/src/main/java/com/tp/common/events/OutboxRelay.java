@@ -0,0 +1,131 @@
+package com.tp.common.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Publishes outbox events in id order, batch-size at a time, through the configured EventTransport.
+// Each batch is read under SKIP LOCKED row locks and marked published in the same transaction, so several
+// instances can relay side by side. A failed batch stays pending and is retried with exponential backoff.
+// Published rows are kept for retention, then deleted.
+@Component
+public class OutboxRelay {
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final OutboxRepository outboxRepository;
+    private final EventTransport transport;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final String source;
+    private final Duration interval;
+    private final int batchSize;
+    private final Duration retention;
+    private final Counter published;
+    private final Counter failures;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("outbox-relay").daemon().factory());
+    private int consecutiveFailures;
+
+    public OutboxRelay(OutboxRepository outboxRepository, EventTransport transport,
+                       TransactionTemplate transactionTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                       @Value("${spring.application.name}") String source,
+                       @Value("${app.events.relay.interval:500ms}") Duration interval,
+                       @Value("${app.events.relay.batch-size:100}") int batchSize,
+                       @Value("${app.events.relay.retention:1d}") Duration retention) {
+        this.outboxRepository = outboxRepository;
+        this.transport = transport;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.source = source;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.published = Counter.builder("outbox.events.published").register(meterRegistry);
+        this.failures = Counter.builder("outbox.relay.failures").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.schedule(this::relay, 0, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::purge, 1, 60, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    // Returns the number of events published
+    public int relayBatch() {
+        Integer count = transactionTemplate.execute(status -> {
+            List<OutboxEvent> batch = outboxRepository.findByPublishedAtIsNullOrderByIdAsc(Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            transport.publish(batch.stream().map(this::toDomainEvent).toList());
+            Instant now = Instant.now();
+            batch.forEach(event -> event.setPublishedAt(now));
+            return batch.size();
+        });
+        return count == null ? 0 : count;
+    }
+
+    private void relay() {
+        long delay = interval.toMillis();
+        try {
+            int count;
+            // Keep draining while full batches come back
+            do {
+                count = relayBatch();
+                published.increment(count);
+            } while (count == batchSize);
+            consecutiveFailures = 0;
+        } catch (Exception e) {
+            failures.increment();
+            consecutiveFailures++;
+            delay = Math.min(MAX_BACKOFF.toMillis(), interval.toMillis() << Math.min(consecutiveFailures, 16));
+            log.warn("Outbox relay failed ({} in a row), retrying in {} ms: {}", consecutiveFailures, delay, e.getMessage());
+        } finally {
+            if (!scheduler.isShutdown()) {
+                scheduler.schedule(this::relay, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void purge() {
+        try {
+            Integer deleted = transactionTemplate.execute(status ->
+                    outboxRepository.deletePublishedBefore(Instant.now().minus(retention)));
+            log.debug("Purged {} published outbox events", deleted);
+        } catch (Exception e) {
+            log.warn("Outbox purge failed: {}", e.getMessage());
+        }
+    }
+
+    private DomainEvent toDomainEvent(OutboxEvent event) {
+        try {
+            return new DomainEvent(event.getId(), source, event.getAggregateType(), event.getAggregateId(),
+                    event.getType(), event.getOccurredAt(), objectMapper.readTree(event.getPayload()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable payload in outbox event " + event.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.tp.common.loadbalancer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+// Latency-aware instance choice: power of two random choices, keeping the instance with the lower
+// cost = peak-EWMA latency * (outstanding requests + 1).
+// The EWMA jumps straight up to a slower observation and decays otherwise (also while an instance is idle,
+// so one that was slow gets probed again). An idle, fast cluster therefore degrades to least-outstanding.
+// Latency and outstanding counts come from the LoadBalancerLifecycle callbacks of the load-balanced clients
+// (the gateway's lb:// routes, order-service's Feign clients).
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+        LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+    // Lowest latency an instance is credited with, so idle instances still compare by outstanding requests
+    private static final long LATENCY_FLOOR_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // A failed call counts as at least this slow
+    private static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // Requests whose completion is never reported stop counting as outstanding after this long
+    private static final Duration IN_FLIGHT_TIMEOUT = Duration.ofMinutes(5);
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final String serviceId;
+    private final double decayNanos;
+    private final LongSupplier clock;
+    private final Map<String, InstanceStats> stats = new ConcurrentHashMap<>();
+    private final Cache<Request<?>, InFlight> inFlight;
+
+    private record InFlight(InstanceStats stats, long startNanos) {
+    }
+
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider, String serviceId,
+                                Duration decay) {
+        this(supplierProvider, serviceId, decay, System::nanoTime);
+    }
+
+    PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider, String serviceId,
+                         Duration decay, LongSupplier clock) {
+        this.supplierProvider = supplierProvider;
+        this.serviceId = serviceId;
+        this.decayNanos = decay.toNanos();
+        this.clock = clock;
+        // Weak keys compare by identity. Keyed by the request: every client passes the same request object to
+        // onStartRequest and onComplete, while the blocking client (RestTemplate) hands each a new response
+        this.inFlight = Caffeine.newBuilder()
+                .weakKeys()
+                .expireAfterWrite(IN_FLIGHT_TIMEOUT)
+                .removalListener((Request<?> request, InFlight call, RemovalCause cause) -> {
+                    if (cause != RemovalCause.EXPLICIT && call != null) {
+                        call.stats().outstanding.decrementAndGet();
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::choose);
+    }
+
+    Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        if (stats.size() > 2 * instances.size()) {
+            Set<String> current = instances.stream().map(PeakEwmaLoadBalancer::key).collect(Collectors.toSet());
+            stats.keySet().retainAll(current);
+        }
+        if (instances.size() == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        long now = clock.getAsLong();
+        return new DefaultResponse(stats(a).cost(now) <= stats(b).cost(now) ? a : b);
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (request == null || lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        InstanceStats instance = stats(lbResponse.getServer());
+        instance.outstanding.incrementAndGet();
+        // A retry reusing the request replaces its previous attempt, which stops counting as outstanding
+        inFlight.put(request, new InFlight(instance, clock.getAsLong()));
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Request<Object> lbRequest = completionContext.getLoadBalancerRequest();
+        InFlight request = lbRequest != null ? inFlight.asMap().remove(lbRequest) : null;
+        if (request == null) {
+            return;
+        }
+        request.stats().outstanding.decrementAndGet();
+        long now = clock.getAsLong();
+        long latency = now - request.startNanos();
+        switch (completionContext.status()) {
+            case SUCCESS -> request.stats().observe(latency, now);
+            case FAILED -> request.stats().observe(Math.max(latency, FAILURE_PENALTY_NANOS), now);
+            case DISCARD -> {
+                // never reached the instance, says nothing about it
+            }
+        }
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    private InstanceStats stats(ServiceInstance instance) {
+        return stats.computeIfAbsent(key(instance), k -> new InstanceStats(clock.getAsLong()));
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getHost() + ':' + instance.getPort();
+    }
+
+    private final class InstanceStats {
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private double ewmaNanos;
+        private long stampNanos;
+
+        InstanceStats(long now) {
+            this.stampNanos = now;
+        }
+
+        synchronized void observe(long latencyNanos, long now) {
+            double weight = Math.exp(-Math.max(0, now - stampNanos) / decayNanos);
+            ewmaNanos = latencyNanos > ewmaNanos ? latencyNanos : ewmaNanos * weight + latencyNanos * (1 - weight);
+            stampNanos = now;
+        }
+
+        synchronized double cost(long now) {
+            return Math.max(decayed(now), LATENCY_FLOOR_NANOS) * (outstanding.get() + 1);
+        }
+
+        private double decayed(long now) {
+            return ewmaNanos * Math.exp(-Math.max(0, now - stampNanos) / decayNanos);
+        }
+    }
+}
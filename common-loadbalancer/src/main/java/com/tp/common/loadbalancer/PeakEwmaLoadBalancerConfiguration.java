@@ -0,0 +1,43 @@
+package com.tp.common.loadbalancer;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplierBuilder;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+// Per-client configuration for every load-balanced service, named in @LoadBalancerClients(defaultConfiguration).
+// Not a @Configuration on purpose: it is instantiated in each client's own context, not component-scanned.
+// Instances come from the discovery client (the reactive one when the application has it, as the gateway does),
+// restricted to spring.cloud.loadbalancer.zone when any instance there is up.
+public class PeakEwmaLoadBalancerConfiguration {
+
+    @Bean
+    public ServiceInstanceListSupplier zonePreferenceServiceInstanceListSupplier(ConfigurableApplicationContext context) {
+        ServiceInstanceListSupplierBuilder builder = ServiceInstanceListSupplier.builder();
+        if (context.getBeanProvider(ReactiveDiscoveryClient.class).getIfAvailable() != null) {
+            builder.withDiscoveryClient();
+        } else {
+            builder.withBlockingDiscoveryClient();
+        }
+        return builder
+                .withZonePreference()
+                .withCaching()
+                .build(context);
+    }
+
+    @Bean
+    public PeakEwmaLoadBalancer peakEwmaLoadBalancer(Environment environment,
+                                                     LoadBalancerClientFactory loadBalancerClientFactory) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        // The client contexts have no Duration converter, so parse "10s"-style values here
+        Duration decay = DurationStyle.detectAndParse(environment.getProperty("app.loadbalancer.latency-decay", "10s"));
+        return new PeakEwmaLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class), serviceId, decay);
+    }
+}
@@ -0,0 +1,124 @@
+package com.tp.common.loadbalancer;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Real HTTP calls through a @LoadBalanced RestTemplate: three stub instances registered with the simple
+// discovery client, one of them slow. Picks and latencies go through the LoadBalancerLifecycle callbacks.
+// A short decay, so the slow first calls of a cold JVM are forgotten within the test.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        classes = PeakEwmaLoadBalancerIntegrationTests.Client.class,
+        properties = "app.loadbalancer.latency-decay=1s")
+class PeakEwmaLoadBalancerIntegrationTests {
+    private static final int REQUESTS = 1000;
+    private static final int CONCURRENCY = 6;
+    private static final Map<String, Integer> LATENCY_MILLIS = Map.of("fast-1", 5, "fast-2", 5, "slow", 60);
+    private static final List<HttpServer> servers = new ArrayList<>();
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private LoadBalancerClientFactory loadBalancerClientFactory;
+
+    @Configuration
+    @EnableAutoConfiguration
+    @LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)
+    static class Client {
+
+        @Bean
+        @LoadBalanced
+        RestTemplate restTemplate() {
+            return new RestTemplate();
+        }
+    }
+
+    @DynamicPropertySource
+    static void stubInstances(DynamicPropertyRegistry registry) throws IOException {
+        // Without it small responses wait for delayed ACKs, and every instance answers in about 40ms
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        int i = 0;
+        for (Map.Entry<String, Integer> stub : LATENCY_MILLIS.entrySet()) {
+            HttpServer server = startStub(stub.getKey(), stub.getValue());
+            String uri = "http://localhost:" + server.getAddress().getPort();
+            registry.add("spring.cloud.discovery.client.simple.instances.stub[" + i++ + "].uri", () -> uri);
+        }
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void sendsLessTrafficToTheSlowInstance() throws Exception {
+        assertThat(loadBalancerClientFactory.getInstance("stub", ReactorServiceInstanceLoadBalancer.class))
+                .isInstanceOf(PeakEwmaLoadBalancer.class);
+
+        Map<String, Integer> picks = new ConcurrentHashMap<>();
+        ExecutorService callers = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                calls.add(callers.submit(() ->
+                        picks.merge(restTemplate.getForObject("http://stub/", String.class), 1, Integer::sum)));
+            }
+            for (Future<?> call : calls) {
+                call.get();
+            }
+        } finally {
+            callers.shutdown();
+        }
+
+        // Round robin would send a third of the requests to each instance
+        assertThat(picks).containsOnlyKeys("fast-1", "fast-2", "slow");
+        assertThat(picks.get("slow")).isPositive().isLessThan(REQUESTS / 10);
+        assertThat(picks.get("fast-1")).isGreaterThan(REQUESTS / 3);
+        assertThat(picks.get("fast-2")).isGreaterThan(REQUESTS / 3);
+    }
+
+    private static HttpServer startStub(String name, int latencyMillis) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = name.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        servers.add(server);
+        return server;
+    }
+}
@@ -0,0 +1,96 @@
+package com.tp.common.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Simulated traffic against stub instances, on a fake clock: every millisecond a few
+// requests start, and each instance answers after its own latency
+class PeakEwmaLoadBalancerTests {
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long[] now = {0};
+
+    private record Pending(Request<Object> request, Response<ServiceInstance> response, long doneAt) {
+    }
+
+    @Test
+    void spreadsLoadEvenlyOverEquallyFastInstances() {
+        Map<String, Integer> picks = simulate(Map.of("a", 10L, "b", 10L, "c", 10L), 3, 2000);
+
+        int total = picks.values().stream().mapToInt(Integer::intValue).sum();
+        assertThat(picks).containsOnlyKeys("a", "b", "c");
+        picks.values().forEach(count -> assertThat(count).isBetween(total / 4, total / 2));
+    }
+
+    @Test
+    void sendsLessTrafficToASlowInstance() {
+        Map<String, Integer> picks = simulate(Map.of("a", 10L, "b", 10L, "slow", 100L), 3, 2000);
+
+        int total = picks.values().stream().mapToInt(Integer::intValue).sum();
+        assertThat(picks.get("slow")).isPositive().isLessThan(total / 10);
+        assertThat(picks.get("a")).isGreaterThan(total / 3);
+        assertThat(picks.get("b")).isGreaterThan(total / 3);
+    }
+
+    @Test
+    void avoidsAnInstanceWithStuckRequests() {
+        Map<String, Long> latencies = Map.of("a", 10L, "stuck", 60_000L);
+        Map<String, Integer> picks = simulate(latencies, 1, 2000);
+
+        // it never reports a latency, so only its growing outstanding count keeps it from half the traffic
+        assertThat(picks.get("stuck")).isPositive().isLessThan(2000 / 10);
+    }
+
+    private Map<String, Integer> simulate(Map<String, Long> latencyMillis, int requestsPerMilli, int millis) {
+        List<ServiceInstance> instances = new ArrayList<>();
+        latencyMillis.keySet().stream().sorted().forEach(id ->
+                instances.add(new DefaultServiceInstance(id, "product-service", id + ".local", 8081, false)));
+        ServiceInstanceListSupplier supplier = ServiceInstanceListSuppliers.from("product-service",
+                instances.toArray(ServiceInstance[]::new));
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("supplier", supplier));
+        PeakEwmaLoadBalancer loadBalancer = new PeakEwmaLoadBalancer(
+                beans.getBeanProvider(ServiceInstanceListSupplier.class), "product-service",
+                Duration.ofSeconds(1), () -> now[0]);
+
+        Map<String, Integer> picks = new HashMap<>();
+        List<Pending> pending = new ArrayList<>();
+        for (int t = 0; t < millis; t++) {
+            now[0] = t * MILLI;
+            for (Iterator<Pending> it = pending.iterator(); it.hasNext(); ) {
+                Pending call = it.next();
+                if (call.doneAt() <= now[0]) {
+                    loadBalancer.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS,
+                            call.request(), call.response()));
+                    it.remove();
+                }
+            }
+            for (int r = 0; r < requestsPerMilli; r++) {
+                Request<Object> request = new DefaultRequest<>();
+                Response<ServiceInstance> response = loadBalancer.choose(request).block();
+                String id = response.getServer().getInstanceId();
+                loadBalancer.onStartRequest(request, response);
+                picks.merge(id, 1, Integer::sum);
+                pending.add(new Pending(request, response, now[0] + latencyMillis.get(id) * MILLI));
+            }
+        }
+        return picks;
+    }
+}
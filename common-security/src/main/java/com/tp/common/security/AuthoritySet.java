@@ -0,0 +1,36 @@
+package com.tp.common.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Set;
+
+// The authorities granted for one distinct Keycloak role list, computed once and shared by every token
+// carrying that list. roles holds the bare role names for constant-time checks, key is a stable
+// (sorted) identifier of the whole set.
+public final class AuthoritySet implements Serializable {
+    public static final AuthoritySet EMPTY = new AuthoritySet(List.of(), Set.of(), "");
+
+    private final List<GrantedAuthority> authorities;
+    private final Set<String> roles;
+    private final String key;
+
+    AuthoritySet(List<GrantedAuthority> authorities, Set<String> roles, String key) {
+        this.authorities = authorities;
+        this.roles = roles;
+        this.key = key;
+    }
+
+    public List<GrantedAuthority> authorities() {
+        return authorities;
+    }
+
+    public boolean hasRole(String role) {
+        return roles.contains(role);
+    }
+
+    public String key() {
+        return key;
+    }
+}
@@ -0,0 +1,50 @@
+package com.tp.common.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Remembers tokens that already passed signature and claim validation, keyed by a SHA-256 of the raw token.
+// An entry never outlives the token's exp (nor maxTtl) and rejected tokens are not cached.
+public class CachingJwtDecoder implements JwtDecoder {
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> verified;
+    private final Timer verification;
+
+    public CachingJwtDecoder(JwtDecoder delegate, MeterRegistry meterRegistry, long maxSize, Duration maxTtl) {
+        this.delegate = delegate;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(VerifiedJwts.untilExpiry(maxTtl))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "verified-jwts");
+        this.verification = Timer.builder("jwt.verification")
+                .description("Signature and claim validation of tokens not found in the cache")
+                .register(meterRegistry);
+        Gauge.builder("jwt.verification.saved", this, CachingJwtDecoder::savedSeconds)
+                .description("Estimated verification time avoided by the token cache")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        // A failed verification throws out of the mapping function, so nothing is cached for it
+        return verified.get(VerifiedJwts.key(token), key -> verification.record(() -> delegate.decode(token)));
+    }
+
+    private double savedSeconds() {
+        return verified.stats().hitCount() * verification.mean(TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,18 @@
+package com.tp.common.security;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+// JwtAuthenticationToken that keeps the precomputed AuthoritySet, see Roles
+public class KeycloakAuthenticationToken extends JwtAuthenticationToken {
+    private final AuthoritySet authoritySet;
+
+    public KeycloakAuthenticationToken(Jwt jwt, AuthoritySet authoritySet) {
+        super(jwt, authoritySet.authorities(), jwt.getSubject());
+        this.authoritySet = authoritySet;
+    }
+
+    public AuthoritySet getAuthoritySet() {
+        return authoritySet;
+    }
+}
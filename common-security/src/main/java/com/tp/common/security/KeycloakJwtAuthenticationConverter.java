@@ -0,0 +1,15 @@
+package com.tp.common.security;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+// Drop-in for JwtAuthenticationConverter + KeycloakRoleConverter that produces KeycloakAuthenticationTokens
+public class KeycloakJwtAuthenticationConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+    private final KeycloakRoleConverter roleConverter = new KeycloakRoleConverter();
+
+    @Override
+    public AbstractAuthenticationToken convert(Jwt jwt) {
+        return new KeycloakAuthenticationToken(jwt, roleConverter.authoritySet(jwt));
+    }
+}
@@ -0,0 +1,65 @@
+package com.tp.common.security;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Maps Keycloak realm roles (realm_access.roles) to ROLE_ authorities.
+// A realm has a handful of roles and users share a handful of role combinations, so authority objects are
+// interned and the converted set is cached per distinct role list; beyond MAX_CACHED_ROLE_LISTS combinations
+// sets are built per token instead of growing the cache.
+public class KeycloakRoleConverter implements Converter<Jwt, Collection<GrantedAuthority>> {
+    private static final int MAX_CACHED_ROLE_LISTS = 1024;
+
+    private final Map<String, GrantedAuthority> authorities = new ConcurrentHashMap<>();
+    private final Map<List<String>, AuthoritySet> byRoles = new ConcurrentHashMap<>();
+
+    @Override
+    public Collection<GrantedAuthority> convert(Jwt jwt) {
+        return authoritySet(jwt).authorities();
+    }
+
+    public AuthoritySet authoritySet(Jwt jwt) {
+        Map<String, Object> realmAccess = jwt.getClaim("realm_access");
+        if (realmAccess == null || realmAccess.isEmpty()) {
+            return AuthoritySet.EMPTY;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<String> roles = (List<String>) realmAccess.get("roles");
+        if (roles == null || roles.isEmpty()) {
+            return AuthoritySet.EMPTY;
+        }
+
+        AuthoritySet cached = byRoles.get(roles);
+        if (cached != null) {
+            return cached;
+        }
+        AuthoritySet built = build(roles);
+        if (byRoles.size() < MAX_CACHED_ROLE_LISTS) {
+            byRoles.putIfAbsent(List.copyOf(roles), built);
+        }
+        return built;
+    }
+
+    private AuthoritySet build(List<String> roles) {
+        List<GrantedAuthority> granted = new ArrayList<>(roles.size());
+        Set<String> names = new HashSet<>();
+        for (String role : roles) {
+            if (names.add(role)) {
+                granted.add(authorities.computeIfAbsent(role, r -> new SimpleGrantedAuthority("ROLE_" + r)));
+            }
+        }
+        return new AuthoritySet(List.copyOf(granted), Set.copyOf(names), String.join(",", new TreeSet<>(names)));
+    }
+}
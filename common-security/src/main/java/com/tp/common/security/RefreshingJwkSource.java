@@ -0,0 +1,90 @@
+package com.tp.common.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// JWK set kept in memory and refreshed in the background, so request threads never call the JWK endpoint.
+// If a refresh fails the previous keys stay in use; a token signed with an unknown key id triggers an early
+// refresh (at most once per min-refresh-gap) and is rejected until the new keys have arrived.
+public class RefreshingJwkSource implements JWKSource<SecurityContext>, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RefreshingJwkSource.class);
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final int READ_TIMEOUT_MS = 2000;
+    private static final int SIZE_LIMIT_BYTES = 256 * 1024;
+
+    private final URL jwkSetUrl;
+    private final Duration minRefreshGap;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("jwks-refresh").daemon().factory());
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile JWKSet jwkSet = new JWKSet();
+    private volatile long lastRefreshNanos = System.nanoTime() - Long.MAX_VALUE / 2;
+
+    public RefreshingJwkSource(URL jwkSetUrl, Duration refreshInterval, Duration minRefreshGap) {
+        this.jwkSetUrl = jwkSetUrl;
+        this.minRefreshGap = minRefreshGap;
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshInterval.toMillis(), refreshInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    // Loads the keys on the calling thread; used once at startup
+    public void prefetch() {
+        refresh();
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector selector, SecurityContext context) {
+        List<JWK> matches = selector.select(jwkSet);
+        if (matches.isEmpty()) {
+            requestRefresh();
+        }
+        return matches;
+    }
+
+    private void requestRefresh() {
+        if (System.nanoTime() - lastRefreshNanos >= minRefreshGap.toNanos() && refreshing.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                try {
+                    refresh();
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        }
+    }
+
+    private void refresh() {
+        lastRefreshNanos = System.nanoTime();
+        try {
+            jwkSet = JWKSet.load(jwkSetUrl, CONNECT_TIMEOUT_MS, READ_TIMEOUT_MS, SIZE_LIMIT_BYTES);
+            log.debug("Loaded {} keys from {}", jwkSet.getKeys().size(), jwkSetUrl);
+        } catch (IOException | ParseException e) {
+            log.warn("Could not refresh JWK set from {}, keeping {} known keys: {}",
+                    jwkSetUrl, jwkSet.getKeys().size(), e.getMessage());
+            if (jwkSet.getKeys().isEmpty()) {
+                // Nothing to fall back on: try again soon instead of waiting for the next scheduled refresh
+                scheduler.schedule(this::refresh, minRefreshGap.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
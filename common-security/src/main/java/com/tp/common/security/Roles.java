@@ -0,0 +1,44 @@
+package com.tp.common.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.stream.Collectors;
+
+// Role checks against an Authentication. Keycloak tokens answer from their precomputed AuthoritySet;
+// any other Authentication falls back to scanning its authorities.
+public final class Roles {
+    private static final String PREFIX = "ROLE_";
+
+    private Roles() {
+    }
+
+    public static boolean hasRole(Authentication authentication, String role) {
+        if (authentication instanceof KeycloakAuthenticationToken token) {
+            return token.getAuthoritySet().hasRole(role);
+        }
+        if (authentication == null) {
+            return false;
+        }
+        String authority = PREFIX + role;
+        for (GrantedAuthority granted : authentication.getAuthorities()) {
+            if (authority.equals(granted.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Stable identifier of everything the caller is granted, e.g. to partition shared caches
+    public static String scopeKey(Authentication authentication) {
+        if (authentication instanceof KeycloakAuthenticationToken token) {
+            return token.getAuthoritySet().key();
+        }
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .map(authority -> authority.startsWith(PREFIX) ? authority.substring(PREFIX.length()) : authority)
+                .sorted()
+                .distinct()
+                .collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,38 @@
+package com.tp.common.security;
+
+import org.springframework.security.oauth2.client.AuthorizedClientServiceOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+
+// Access tokens of the service's own Keycloak client (client_credentials grant), for calls a service makes on its
+// own behalf rather than a user's: relayed events, stock reservations. The client's service account carries the
+// SERVICE realm role. A token is reused until shortly before it expires, then fetched again.
+public class ServiceTokenProvider {
+    public static final String SERVICE_ROLE = "SERVICE";
+
+    private final AuthorizedClientServiceOAuth2AuthorizedClientManager manager;
+    private final String registrationId;
+
+    public ServiceTokenProvider(ClientRegistrationRepository registrations, OAuth2AuthorizedClientService clients,
+                                String registrationId) {
+        this.manager = new AuthorizedClientServiceOAuth2AuthorizedClientManager(registrations, clients);
+        this.manager.setAuthorizedClientProvider(OAuth2AuthorizedClientProviderBuilder.builder()
+                .clientCredentials()
+                .build());
+        this.registrationId = registrationId;
+    }
+
+    public String getToken() {
+        OAuth2AuthorizedClient client = manager.authorize(OAuth2AuthorizeRequest
+                .withClientRegistrationId(registrationId)
+                .principal(registrationId)
+                .build());
+        if (client == null) {
+            throw new IllegalStateException("No token for client registration " + registrationId);
+        }
+        return client.getAccessToken().getTokenValue();
+    }
+}
@@ -0,0 +1,57 @@
+package com.tp.common.security;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+// Keys and expiry shared by the caches of verified tokens (CachingJwtDecoder, and the gateway's reactive one)
+public final class VerifiedJwts {
+
+    private VerifiedJwts() {
+    }
+
+    // SHA-256 of the raw token, so the cache does not hold usable bearer tokens as keys
+    public static String key(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Keeps an entry until the token's exp, at most maxTtl; tokens without exp are not kept. Reads don't extend it
+    public static Expiry<String, Jwt> untilExpiry(Duration maxTtl) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+                return remaining(jwt, maxTtl);
+            }
+
+            @Override
+            public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+                return remaining(jwt, maxTtl);
+            }
+
+            @Override
+            public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    private static long remaining(Jwt jwt, Duration maxTtl) {
+        Instant expiresAt = jwt.getExpiresAt();
+        if (expiresAt == null) {
+            return 0;
+        }
+        long untilExp = Duration.between(Instant.now(), expiresAt).toNanos();
+        return Math.max(0, Math.min(untilExp, maxTtl.toNanos()));
+    }
+}
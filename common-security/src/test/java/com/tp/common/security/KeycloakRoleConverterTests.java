@@ -0,0 +1,58 @@
+package com.tp.common.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeycloakRoleConverterTests {
+
+    private final KeycloakRoleConverter converter = new KeycloakRoleConverter();
+
+    @Test
+    void mapsRealmRolesToRoleAuthorities() {
+        assertThat(converter.convert(jwt(List.of("CLIENT", "ADMIN"))))
+                .extracting(Object::toString)
+                .containsExactly("ROLE_CLIENT", "ROLE_ADMIN");
+        assertThat(converter.convert(jwt(null))).isEmpty();
+    }
+
+    @Test
+    void sharesOneAuthoritySetPerDistinctRoleList() {
+        AuthoritySet first = converter.authoritySet(jwt(List.of("CLIENT", "ADMIN")));
+        AuthoritySet second = converter.authoritySet(jwt(List.of("CLIENT", "ADMIN")));
+        AuthoritySet other = converter.authoritySet(jwt(List.of("ADMIN")));
+
+        assertThat(second).isSameAs(first);
+        assertThat(other.authorities().get(0)).isSameAs(first.authorities().get(1));
+        assertThat(first.key()).isEqualTo("ADMIN,CLIENT");
+    }
+
+    @Test
+    void checksRolesOnKeycloakAndOtherAuthentications() {
+        Jwt jwt = jwt(List.of("CLIENT"));
+        KeycloakAuthenticationToken token = new KeycloakAuthenticationToken(jwt, converter.authoritySet(jwt));
+
+        assertThat(Roles.hasRole(token, "CLIENT")).isTrue();
+        assertThat(Roles.hasRole(token, "ADMIN")).isFalse();
+        assertThat(Roles.hasRole(new TestingAuthenticationToken("u", "p", "ROLE_ADMIN"), "ADMIN")).isTrue();
+        assertThat(Roles.hasRole(null, "ADMIN")).isFalse();
+        assertThat(Roles.scopeKey(new TestingAuthenticationToken("u", "p", "ROLE_CLIENT", "ROLE_ADMIN")))
+                .isEqualTo(Roles.scopeKey(new KeycloakAuthenticationToken(jwt(List.of("ADMIN", "CLIENT")),
+                        converter.authoritySet(jwt(List.of("ADMIN", "CLIENT"))))));
+    }
+
+    private static Jwt jwt(List<String> roles) {
+        Jwt.Builder builder = Jwt.withTokenValue("token").header("alg", "RS256").subject("user");
+        if (roles != null) {
+            builder.claim("realm_access", Map.of("roles", roles));
+        } else {
+            builder.claim("scope", "openid");
+        }
+        return builder.build();
+    }
+}
@@ -39,8 +39,8 @@ import { Order } from '../../models/order.model';
                     <ul>
                       @for (item of order.orderItems; track item.id) {
                         <li>
-                          @if (item.product) {
-                            <strong>{{ item.product.name }}</strong>
+                          @if (item.productName || item.product) {
+                            <strong>{{ item.productName || item.product?.name }}</strong>
                           } @else {
                             Product #{{ item.productId }}
                           }
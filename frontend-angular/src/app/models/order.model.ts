@@ -4,9 +4,10 @@ export interface OrderItem {
     id: number;
     productId: number;
     quantity: number;
-    price?: number;     // Correspond au backend
+    price?: number;     // Prix unitaire au moment de la commande
     unitPrice?: number; // Alias ancien si nécessaire, mais on préfère price
-    product?: Product;
+    productName?: string; // Nom du produit au moment de la commande
+    product?: Product;  // Produit actuel, seulement avec ?expand=liveProduct
 }
 
 export interface Order {
@@ -0,0 +1,11 @@
+package com.tp.gatewayservice.cache;
+
+import org.springframework.http.HttpHeaders;
+
+// A stored 200 response. Past freshUntil it may only be served after the upstream confirms its ETag.
+public record CachedResponse(HttpHeaders headers, byte[] body, String etag, long freshUntilNanos) {
+
+    public boolean isFresh() {
+        return System.nanoTime() - freshUntilNanos < 0;
+    }
+}
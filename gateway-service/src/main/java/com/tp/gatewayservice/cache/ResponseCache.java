@@ -0,0 +1,126 @@
+package com.tp.gatewayservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+// Shared store for cacheable upstream GET responses, bounded by total body size.
+// Entries outlive their freshness by stale-retention so they can still be revalidated with If-None-Match.
+@Component
+public class ResponseCache {
+    private static final List<String> STORED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.CONTENT_ENCODING,
+            HttpHeaders.CONTENT_LANGUAGE,
+            HttpHeaders.ETAG,
+            HttpHeaders.LAST_MODIFIED,
+            HttpHeaders.CACHE_CONTROL);
+    // Rough per-entry overhead of key, headers and bookkeeping, so tiny bodies still weigh something
+    private static final int ENTRY_OVERHEAD_BYTES = 512;
+
+    public enum Outcome { HIT, REVALIDATED, MISS, BYPASS }
+
+    private final Cache<String, CachedResponse> cache;
+    private final long maxEntryBytes;
+    private final Counter hits;
+    private final Counter revalidations;
+    private final Counter misses;
+    private final Counter bypasses;
+
+    public ResponseCache(MeterRegistry meterRegistry,
+                         @Value("${app.gateway.response-cache.max-size:64MB}") DataSize maxSize,
+                         @Value("${app.gateway.response-cache.max-entry-size:1MB}") DataSize maxEntrySize,
+                         @Value("${app.gateway.response-cache.stale-retention:5m}") Duration staleRetention) {
+        this.maxEntryBytes = maxEntrySize.toBytes();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, CachedResponse value) -> value.body().length + ENTRY_OVERHEAD_BYTES)
+                .expireAfter(new Expiry<String, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+                        return Math.max(0, value.freshUntilNanos() - System.nanoTime()) + staleRetention.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway-responses");
+        this.hits = outcomeCounter(meterRegistry, Outcome.HIT);
+        this.revalidations = outcomeCounter(meterRegistry, Outcome.REVALIDATED);
+        this.misses = outcomeCounter(meterRegistry, Outcome.MISS);
+        this.bypasses = outcomeCounter(meterRegistry, Outcome.BYPASS);
+        Gauge.builder("gateway.response.cache.hit.ratio", this, ResponseCache::hitRatio)
+                .description("Share of cacheable GETs answered without a full upstream response")
+                .register(meterRegistry);
+    }
+
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public long maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public CachedResponse put(String key, HttpHeaders upstreamHeaders, byte[] body, Duration freshFor) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : STORED_HEADERS) {
+            List<String> values = upstreamHeaders.get(name);
+            if (values != null) {
+                headers.put(name, List.copyOf(values));
+            }
+        }
+        CachedResponse response = new CachedResponse(HttpHeaders.readOnlyHttpHeaders(headers), body,
+                headers.getETag(), System.nanoTime() + freshFor.toNanos());
+        cache.put(key, response);
+        return response;
+    }
+
+    // Keys start with the route id, see ResponseCacheGatewayFilterFactory
+    public void invalidateRoute(String routeId) {
+        String prefix = routeId + ' ';
+        cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    public void record(Outcome outcome) {
+        switch (outcome) {
+            case HIT -> hits.increment();
+            case REVALIDATED -> revalidations.increment();
+            case MISS -> misses.increment();
+            case BYPASS -> bypasses.increment();
+        }
+    }
+
+    private double hitRatio() {
+        double served = hits.count() + revalidations.count();
+        double total = served + misses.count();
+        return total == 0 ? 0 : served / total;
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, Outcome outcome) {
+        return Counter.builder("gateway.response.cache.requests")
+                .tag("outcome", outcome.name().toLowerCase())
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,64 @@
+package com.tp.gatewayservice.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tp.common.security.VerifiedJwts;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Remembers tokens that already passed signature and claim validation, keyed by a SHA-256 of the raw token,
+// so a token reused across requests is verified once. An entry never outlives the token's exp (nor maxTtl),
+// failed tokens are not cached, and concurrent first uses of the same token share one verification.
+public class CachingReactiveJwtDecoder implements ReactiveJwtDecoder {
+    private final ReactiveJwtDecoder delegate;
+    private final AsyncCache<String, Jwt> verified;
+    private final Timer verification;
+
+    public CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate, MeterRegistry meterRegistry,
+                                     long maxSize, Duration maxTtl) {
+        this.delegate = delegate;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(VerifiedJwts.untilExpiry(maxTtl))
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "gateway-verified-jwts");
+        this.verification = Timer.builder("gateway.jwt.verification")
+                .description("Signature and claim validation of tokens not found in the cache")
+                .register(meterRegistry);
+        // Cache hits times the average cost of a verification
+        Gauge.builder("gateway.jwt.verification.saved", this, CachingReactiveJwtDecoder::savedSeconds)
+                .description("Estimated verification time avoided by the token cache")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        // suppressCancel: one caller going away must not cancel a verification others are waiting for
+        return Mono.fromFuture(
+                verified.get(VerifiedJwts.key(token), (key, executor) -> verify(token).toFuture()), true);
+    }
+
+    private Mono<Jwt> verify(String token) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return delegate.decode(token)
+                    .doOnSuccess(jwt -> verification.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private double savedSeconds() {
+        return verified.synchronous().stats().hitCount() * verification.mean(TimeUnit.SECONDS);
+    }
+}
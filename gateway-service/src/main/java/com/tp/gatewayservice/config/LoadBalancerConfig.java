@@ -0,0 +1,11 @@
+package com.tp.gatewayservice.config;
+
+import com.tp.common.loadbalancer.PeakEwmaLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+// lb:// routes are resolved through Eureka and instances picked by latency (PeakEwmaLoadBalancer)
+@Configuration
+@LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
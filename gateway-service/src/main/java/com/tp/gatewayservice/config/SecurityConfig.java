@@ -1,6 +1,7 @@
 package com.tp.gatewayservice.config;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.tp.common.security.KeycloakJwtAuthenticationConverter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,8 +10,6 @@ import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
 import org.springframework.security.oauth2.core.OAuth2Error;
 import org.springframework.security.oauth2.core.OAuth2TokenValidator;
@@ -19,7 +18,6 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtValidators;
 import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
 import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.oauth2.server.resource.authentication.ReactiveJwtAuthenticationConverterAdapter;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
@@ -27,10 +25,8 @@ import org.springframework.web.cors.reactive.CorsConfigurationSource;
 import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -49,6 +45,8 @@ public class SecurityConfig {
                 .authorizeExchange(exchanges -> exchanges
                         .pathMatchers(HttpMethod.OPTIONS).permitAll()
                         .pathMatchers("/actuator/**").permitAll()
+                        // Service-to-service endpoints are called directly between services, never through the gateway
+                        .pathMatchers("/*/api/events/**").denyAll()
                         .anyExchange().authenticated())
                 .oauth2ResourceServer(oauth2 -> oauth2
                         .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter())));
@@ -57,22 +55,24 @@ public class SecurityConfig {
     }
 
     private Converter<Jwt, Mono<AbstractAuthenticationToken>> jwtAuthenticationConverter() {
-        JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
-        converter.setJwtGrantedAuthoritiesConverter(new KeycloakRoleConverter());
-        return new ReactiveJwtAuthenticationConverterAdapter(converter);
+        return new ReactiveJwtAuthenticationConverterAdapter(new KeycloakJwtAuthenticationConverter());
     }
 
     @Bean
     public ReactiveJwtDecoder reactiveJwtDecoder(
             @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri:http://localhost:8080/realms/microservices-realm/protocol/openid-connect/certs}") String jwkSetUri,
-            @Value("${app.security.allowed-issuers:http://localhost:8080/realms/microservices-realm,http://keycloak:8080/realms/microservices-realm}") String allowedIssuers) {
+            @Value("${app.security.allowed-issuers:http://localhost:8080/realms/microservices-realm,http://keycloak:8080/realms/microservices-realm}") String allowedIssuers,
+            @Value("${app.security.jwt-cache.max-size:10000}") long cacheMaxSize,
+            @Value("${app.security.jwt-cache.max-ttl:5m}") Duration cacheMaxTtl,
+            MeterRegistry meterRegistry) {
         NimbusReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSetUri(jwkSetUri).build();
 
         OAuth2TokenValidator<Jwt> withTimestamp = JwtValidators.createDefault();
         OAuth2TokenValidator<Jwt> issuerValidator = new AllowedIssuersValidator(parseCsvToSet(allowedIssuers));
 
         decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(withTimestamp, issuerValidator));
-        return decoder;
+        // The same token comes back on every request of a session; verify it once per cache entry
+        return new CachingReactiveJwtDecoder(decoder, meterRegistry, cacheMaxSize, cacheMaxTtl);
     }
 
     @Bean
@@ -89,27 +89,6 @@ public class SecurityConfig {
         return source;
     }
 
-    // Custom converter to extract roles from Keycloak JWT
-    static class KeycloakRoleConverter implements Converter<Jwt, Collection<GrantedAuthority>> {
-        @Override
-        public Collection<GrantedAuthority> convert(Jwt jwt) {
-            Map<String, Object> realmAccess = jwt.getClaim("realm_access");
-            if (realmAccess == null || realmAccess.isEmpty()) {
-                return List.of();
-            }
-
-            @SuppressWarnings("unchecked")
-            List<String> roles = (List<String>) realmAccess.get("roles");
-            if (roles == null) {
-                return List.of();
-            }
-
-            return roles.stream()
-                    .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
-                    .collect(Collectors.toList());
-        }
-    }
-
     // Accept issuer from host (localhost) or from Docker network (keycloak)
     static class AllowedIssuersValidator implements OAuth2TokenValidator<Jwt> {
         private final Set<String> allowedIssuers;
@@ -0,0 +1,23 @@
+package com.tp.gatewayservice.filters;
+
+import com.tp.common.security.Roles;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+// What a request is allowed to see, as a stable string: the sorted roles of the caller.
+// Two users with the same roles share the same scope, so shared responses can be reused between them.
+final class AuthorizationScope {
+    static final String ANONYMOUS = "anonymous";
+
+    private AuthorizationScope() {
+    }
+
+    static Mono<String> of(ServerWebExchange exchange) {
+        return exchange.getPrincipal()
+                .map(principal -> principal instanceof Authentication authentication
+                        ? Roles.scopeKey(authentication)
+                        : principal.getName())
+                .defaultIfEmpty(ANONYMOUS);
+    }
+}
@@ -0,0 +1,161 @@
+package com.tp.gatewayservice.filters;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Single-flight for GETs: while a request is in flight upstream, identical requests (same route, caller
+// authorization scope, path, query and content negotiation headers) wait for it and get a copy of its response
+// instead of going upstream themselves. If the leader's response cannot be shared, followers are forwarded as usual.
+@Component
+public class CoalesceGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<CoalesceGatewayFilterFactory.Config> {
+    // Runs after ResponseCacheGatewayFilterFactory, so only cache misses are coalesced
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    private static final List<String> KEY_HEADERS = List.of(
+            HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE,
+            HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE);
+    // Connection-level headers describe the leader's transfer, not the response
+    private static final List<String> UNSHARED_HEADERS = List.of(
+            HttpHeaders.CONNECTION, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONTENT_LENGTH, "Keep-Alive");
+
+    private final Map<String, Mono<SharedResponse>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+
+    public CoalesceGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public static class Config {
+        // Larger responses are not held in memory for sharing
+        private DataSize maxBodySize = DataSize.ofMegabytes(1);
+
+        public DataSize getMaxBodySize() {
+            return maxBodySize;
+        }
+
+        public void setMaxBodySize(DataSize maxBodySize) {
+            this.maxBodySize = maxBodySize;
+        }
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("maxBodySize");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> filter(exchange, chain, config), ORDER);
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain, Config config) {
+        if (exchange.getRequest().getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+        String routeId = ExchangeKeys.routeId(exchange);
+        return AuthorizationScope.of(exchange).flatMap(scope -> {
+            String key = key(routeId, scope, exchange.getRequest());
+
+            Sinks.One<SharedResponse> sink = Sinks.one();
+            Mono<SharedResponse> shared = sink.asMono();
+            Mono<SharedResponse> leader = inFlight.putIfAbsent(key, shared);
+            if (leader != null) {
+                coalesced(routeId).increment();
+                // Pick the write before running it: it completes empty too, and must not send the follower upstream
+                return leader
+                        .map(response -> write(exchange.getResponse(), response))
+                        .defaultIfEmpty(Mono.defer(() -> chain.filter(exchange)))
+                        .flatMap(Function.identity());
+            }
+
+            SharingResponse response = new SharingResponse(exchange.getResponse(), config.getMaxBodySize().toBytes(),
+                    captured -> {
+                        inFlight.remove(key, shared);
+                        sink.tryEmitValue(captured);
+                    });
+            return chain.filter(exchange.mutate().response(response).build())
+                    .doFinally(signal -> {
+                        // Nothing was captured (error, cancel or unshareable response): followers go upstream
+                        inFlight.remove(key, shared);
+                        sink.tryEmitEmpty();
+                    });
+        });
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, SharedResponse shared) {
+        response.setStatusCode(shared.status());
+        response.getHeaders().putAll(shared.headers());
+        response.getHeaders().setContentLength(shared.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+
+    private Counter coalesced(String routeId) {
+        return Counter.builder("gateway.requests.coalesced")
+                .description("GETs answered with the response of an identical in-flight request")
+                .tag("route", routeId)
+                .register(meterRegistry);
+    }
+
+    private static String key(String routeId, String scope, ServerHttpRequest request) {
+        return ExchangeKeys.withHeaders(routeId + ' ' + scope + ' ' + ExchangeKeys.pathAndQuery(request),
+                request, KEY_HEADERS);
+    }
+
+    // Keeps a copy of the leader's response for its followers; responses with cookies or bodies
+    // over maxBodySize are not shared
+    private static class SharingResponse extends ServerHttpResponseDecorator {
+        private final long maxBodySize;
+        private final Consumer<SharedResponse> onCaptured;
+
+        SharingResponse(ServerHttpResponse delegate, long maxBodySize,
+                        Consumer<SharedResponse> onCaptured) {
+            super(delegate);
+            this.maxBodySize = maxBodySize;
+            this.onCaptured = onCaptured;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            long contentLength = headers.getContentLength();
+            if (headers.containsKey(HttpHeaders.SET_COOKIE) || contentLength > maxBodySize) {
+                return super.writeWith(body);
+            }
+            HttpStatusCode status = getStatusCode();
+            return super.writeWith(ResponseBodyTee.copying(body, contentLength, maxBodySize, bytes -> {
+                HttpHeaders copy = new HttpHeaders();
+                headers.forEach((name, values) -> copy.put(name, List.copyOf(values)));
+                UNSHARED_HEADERS.forEach(copy::remove);
+                onCaptured.accept(new SharedResponse(status, HttpHeaders.readOnlyHttpHeaders(copy), bytes));
+            }));
+        }
+    }
+}
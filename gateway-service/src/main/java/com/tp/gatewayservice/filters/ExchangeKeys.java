@@ -0,0 +1,38 @@
+package com.tp.gatewayservice.filters;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+// Pieces of a request that identify "the same read" for the caching and coalescing filters
+final class ExchangeKeys {
+
+    private ExchangeKeys() {
+    }
+
+    static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "";
+    }
+
+    static String pathAndQuery(ServerHttpRequest request) {
+        String query = request.getURI().getRawQuery();
+        return query == null ? request.getURI().getRawPath() : request.getURI().getRawPath() + '?' + query;
+    }
+
+    // Appends the request's values of the given headers, for keys of reads whose response depends on them
+    static String withHeaders(String key, ServerHttpRequest request, List<String> headers) {
+        StringBuilder withHeaders = new StringBuilder(key);
+        for (String header : headers) {
+            List<String> values = request.getHeaders().get(header);
+            if (values != null) {
+                withHeaders.append('\n').append(header).append(':').append(String.join(",", values));
+            }
+        }
+        return withHeaders.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.tp.gatewayservice.filters;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+// Copies a response body as it streams through to the client, without holding back any buffer.
+// The copy is handed over on completion, or dropped as soon as it grows beyond maxBytes.
+final class ResponseBodyTee {
+
+    private ResponseBodyTee() {
+    }
+
+    static <T extends DataBuffer> Flux<T> copying(Publisher<T> body, long expectedBytes, long maxBytes,
+                                                  Consumer<byte[]> onCopied) {
+        ByteArrayOutputStream[] copy = {new ByteArrayOutputStream(expectedBytes > 0 ? (int) expectedBytes : 1024)};
+        return Flux.from(body)
+                .doOnNext(buffer -> {
+                    if (copy[0] == null) {
+                        return;
+                    }
+                    int length = buffer.readableByteCount();
+                    if (copy[0].size() + length > maxBytes) {
+                        copy[0] = null;
+                        return;
+                    }
+                    byte[] bytes = new byte[length];
+                    buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(bytes), 0, length);
+                    copy[0].writeBytes(bytes);
+                })
+                .doOnComplete(() -> {
+                    if (copy[0] != null) {
+                        onCopied.accept(copy[0].toByteArray());
+                    }
+                });
+    }
+}
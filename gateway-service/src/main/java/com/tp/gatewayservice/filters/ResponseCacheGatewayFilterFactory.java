@@ -0,0 +1,259 @@
+package com.tp.gatewayservice.filters;
+
+import com.tp.gatewayservice.cache.CachedResponse;
+import com.tp.gatewayservice.cache.ResponseCache;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Serves repeated GETs on a route from ResponseCache.
+// Entries are keyed by route, caller authorization scope, path and query, and the negotiation headers that pick
+// the stored Content-Type/-Encoding/-Language, and honour upstream Cache-Control:
+// no-store/private responses are never kept, and max-age/s-maxage can only shorten the configured ttl.
+// Expired entries with an ETag are revalidated upstream, and a successful write on the route drops its entries
+// (POSTs to the route's read-only paths, such as batch lookups, are not writes).
+@Component
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+    // Before NettyWriteResponseFilter so the upstream body goes through our response decorator
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2;
+    static final String CACHE_STATUS_HEADER = "X-Cache";
+    private static final Set<HttpMethod> WRITE_METHODS =
+            Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+    // A gzipped or otherwise negotiated response must only be replayed to clients that asked for the same
+    private static final List<String> KEY_HEADERS =
+            List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE);
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheGatewayFilterFactory(ResponseCache responseCache) {
+        super(Config.class);
+        this.responseCache = responseCache;
+    }
+
+    public static class Config {
+        private Duration ttl = Duration.ofSeconds(30);
+        // Path patterns, matched against the path the gateway received
+        private List<String> readOnlyPaths = List.of();
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public List<String> getReadOnlyPaths() {
+            return readOnlyPaths;
+        }
+
+        public void setReadOnlyPaths(List<String> readOnlyPaths) {
+            this.readOnlyPaths = readOnlyPaths;
+        }
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("ttl");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        List<PathPattern> readOnlyPaths = config.getReadOnlyPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        return new OrderedGatewayFilter((exchange, chain) -> filter(exchange, chain, config, readOnlyPaths), ORDER);
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain, Config config,
+                              List<PathPattern> readOnlyPaths) {
+        ServerHttpRequest request = exchange.getRequest();
+        String routeId = ExchangeKeys.routeId(exchange);
+
+        if (request.getMethod() == HttpMethod.POST && readOnlyPaths.stream()
+                .anyMatch(pattern -> pattern.matches(request.getPath().pathWithinApplication()))) {
+            return chain.filter(exchange);
+        }
+        if (WRITE_METHODS.contains(request.getMethod())) {
+            return chain.filter(exchange).then(Mono.fromRunnable(() -> {
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                if (status != null && status.is2xxSuccessful()) {
+                    responseCache.invalidateRoute(routeId);
+                }
+            }));
+        }
+        if (request.getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+
+        Set<String> requestDirectives = directives(request.getHeaders());
+        if (requestDirectives.contains("no-store")) {
+            responseCache.record(ResponseCache.Outcome.BYPASS);
+            return chain.filter(exchange);
+        }
+
+        return AuthorizationScope.of(exchange).flatMap(scope -> {
+            String key = ExchangeKeys.withHeaders(routeId + ' ' + scope + ' ' + ExchangeKeys.pathAndQuery(request),
+                    request, KEY_HEADERS);
+            String clientETag = request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+            CachedResponse cached = requestDirectives.contains("no-cache") ? null : responseCache.get(key);
+
+            if (cached != null && cached.isFresh()) {
+                responseCache.record(ResponseCache.Outcome.HIT);
+                return writeCached(exchange.getResponse(), cached, clientETag, "HIT");
+            }
+
+            // Stale copy with a validator: let the upstream confirm it instead of resending the body
+            CachedResponse revalidating = cached != null && cached.etag() != null ? cached : null;
+            ServerHttpRequest upstream = revalidating == null ? request : request.mutate()
+                    .headers(headers -> {
+                        headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                        headers.setIfNoneMatch(revalidating.etag());
+                    })
+                    .build();
+            CapturingResponse response = new CapturingResponse(exchange.getResponse(), key, revalidating,
+                    clientETag, config.getTtl());
+            return chain.filter(exchange.mutate().request(upstream).response(response).build());
+        });
+    }
+
+    private Mono<Void> writeCached(ServerHttpResponse response, CachedResponse cached, String clientETag,
+                                   String cacheStatus) {
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(cached.headers());
+        headers.set(CACHE_STATUS_HEADER, cacheStatus);
+        if (cached.etag() != null && clientETag != null && etagMatches(clientETag, cached.etag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        headers.setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    // Decides, once the upstream status and headers are known, whether to serve a revalidated copy,
+    // keep a copy of the body while streaming it through, or stay out of the way
+    private class CapturingResponse extends ServerHttpResponseDecorator {
+        private final String key;
+        private final CachedResponse revalidating;
+        private final String clientETag;
+        private final Duration ttl;
+
+        CapturingResponse(ServerHttpResponse delegate, String key, CachedResponse revalidating,
+                          String clientETag, Duration ttl) {
+            super(delegate);
+            this.key = key;
+            this.revalidating = revalidating;
+            this.clientETag = clientETag;
+            this.ttl = ttl;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            if (revalidating != null && status == HttpStatus.NOT_MODIFIED) {
+                HttpHeaders validated = getHeaders().getCacheControl() != null ? getHeaders() : revalidating.headers();
+                Duration freshFor = freshness(validated);
+                CachedResponse refreshed = freshFor == null ? revalidating
+                        : responseCache.put(key, revalidating.headers(), revalidating.body(), freshFor);
+                responseCache.record(ResponseCache.Outcome.REVALIDATED);
+                return Flux.from(body).doOnNext(DataBufferUtils::release)
+                        .then(writeCached(getDelegate(), refreshed, clientETag, "REVALIDATED"));
+            }
+
+            responseCache.record(ResponseCache.Outcome.MISS);
+            getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+            Duration freshFor = status == HttpStatus.OK && !getHeaders().containsKey(HttpHeaders.SET_COOKIE)
+                    ? freshness(getHeaders()) : null;
+            long contentLength = getHeaders().getContentLength();
+            if (freshFor == null || contentLength > responseCache.maxEntryBytes()) {
+                return super.writeWith(body);
+            }
+
+            HttpHeaders upstreamHeaders = getHeaders();
+            return super.writeWith(ResponseBodyTee.copying(body, contentLength, responseCache.maxEntryBytes(),
+                    bytes -> responseCache.put(key, upstreamHeaders, bytes, freshFor)));
+        }
+
+        // How long the gateway may reuse this response, or null if it must not be stored
+        private Duration freshness(HttpHeaders headers) {
+            Set<String> directives = directives(headers);
+            if (directives.contains("no-store") || directives.contains("private")) {
+                return null;
+            }
+            if (directives.contains("no-cache")) {
+                return Duration.ZERO;
+            }
+            Duration limit = maxAge(directives, "s-maxage=");
+            if (limit == null) {
+                limit = maxAge(directives, "max-age=");
+            }
+            return limit == null || limit.compareTo(ttl) > 0 ? ttl : limit;
+        }
+    }
+
+    private static Set<String> directives(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return Set.of();
+        }
+        return Arrays.stream(cacheControl.toLowerCase(Locale.ROOT).split(","))
+                .map(String::trim)
+                .filter(directive -> !directive.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static Duration maxAge(Set<String> directives, String prefix) {
+        for (String directive : directives) {
+            if (directive.startsWith(prefix)) {
+                try {
+                    return Duration.ofSeconds(Math.max(0, Long.parseLong(directive.substring(prefix.length()))));
+                } catch (NumberFormatException e) {
+                    return Duration.ZERO;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        String opaque = weakless(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || weakless(trimmed).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String weakless(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
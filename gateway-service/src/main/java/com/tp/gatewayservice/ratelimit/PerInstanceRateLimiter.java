@@ -0,0 +1,149 @@
+package com.tp.gatewayservice.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token buckets per route and key (see RateLimitConfig), kept in this gateway instance's memory only: instances
+// do not share them. Route limits are for the whole deployment, and each of the app.gateway.rate-limit.instances
+// gateways enforces its share of the rate and of the burst. That holds as long as the load balancer in front
+// spreads a user's requests evenly; instances must be kept in line with the number of gateway replicas.
+// Each bucket is a single AtomicLong holding its "theoretical arrival time" (GCRA): a request costing n tokens
+// moves it n emission intervals forward, and is refused if that would put it more than the instance's share
+// of burstCapacity intervals ahead of now. Updates are a CAS loop, no locks. Buckets unused for idle-timeout
+// are evicted; by then they have refilled, so a new bucket starts in the same (full) state.
+//
+// Route args of the RateLimit filter, next to key-resolver (all instances together):
+//   per-instance-rate-limiter.replenish-rate: tokens added per second
+//   per-instance-rate-limiter.burst-capacity: bucket size
+//   per-instance-rate-limiter.requested-tokens: cost of one request
+@Component
+@Primary
+public class PerInstanceRateLimiter extends AbstractRateLimiter<PerInstanceRateLimiter.Config> {
+    public static final String CONFIGURATION_PROPERTY_NAME = "per-instance-rate-limiter";
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+    public static final String REQUESTED_TOKENS_HEADER = "X-RateLimit-Requested-Tokens";
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Cache<String, AtomicLong> buckets;
+    private final Config defaultConfig;
+    private final int instances;
+
+    public PerInstanceRateLimiter(ConfigurationService configurationService, MeterRegistry meterRegistry,
+                               @Value("${app.gateway.rate-limit.max-keys:100000}") long maxKeys,
+                               @Value("${app.gateway.rate-limit.idle-timeout:10m}") Duration idleTimeout,
+                               @Value("${app.gateway.rate-limit.default-replenish-rate:10}") int defaultReplenishRate,
+                               @Value("${app.gateway.rate-limit.default-burst-capacity:20}") int defaultBurstCapacity,
+                               @Value("${app.gateway.rate-limit.instances:1}") int instances) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(idleTimeout)
+                .recordStats()
+                .build();
+        this.defaultConfig = new Config()
+                .setReplenishRate(defaultReplenishRate)
+                .setBurstCapacity(defaultBurstCapacity);
+        if (instances < 1) {
+            throw new IllegalArgumentException("app.gateway.rate-limit.instances must be at least 1");
+        }
+        this.instances = instances;
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "gateway-rate-limit-buckets");
+    }
+
+    public static class Config {
+        private int replenishRate;
+        private int burstCapacity;
+        private int requestedTokens = 1;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        if (config.getReplenishRate() <= 0
+                || config.getBurstCapacity() < (long) config.getRequestedTokens() * instances) {
+            return Mono.error(new IllegalArgumentException("Invalid " + CONFIGURATION_PROPERTY_NAME
+                    + " config for route " + routeId + ": replenish-rate must be positive and burst-capacity"
+                    + " >= requested-tokens * " + instances + " instances"));
+        }
+
+        // This instance's share: 1/instances of the tokens per second, and of the burst
+        long interval = NANOS_PER_SECOND * instances / config.getReplenishRate();
+        long cost = interval * config.getRequestedTokens();
+        long tolerance = interval * config.getBurstCapacity() / instances;
+        AtomicLong bucket = buckets.get(routeId + ':' + id, key -> new AtomicLong(System.nanoTime()));
+
+        while (true) {
+            long now = System.nanoTime();
+            long current = bucket.get();
+            // A bucket behind now has been refilling since; it cannot hold more than a full burst
+            long arrival = current - now < 0 ? now : current;
+            long next = arrival + cost;
+            long ahead = next - now;
+            if (ahead > tolerance) {
+                long retryAfterNanos = ahead - tolerance;
+                return Mono.just(new Response(false, headers(config, 0, retryAfterNanos)));
+            }
+            if (bucket.compareAndSet(current, next)) {
+                long remaining = (tolerance - ahead) / interval;
+                return Mono.just(new Response(true, headers(config, remaining, 0)));
+            }
+        }
+    }
+
+    // The route's limits as configured; Remaining is what is left of this instance's share
+    private static Map<String, String> headers(Config config, long remaining, long retryAfterNanos) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(REMAINING_HEADER, Long.toString(remaining));
+        headers.put(REPLENISH_RATE_HEADER, Integer.toString(config.getReplenishRate()));
+        headers.put(BURST_CAPACITY_HEADER, Integer.toString(config.getBurstCapacity()));
+        headers.put(REQUESTED_TOKENS_HEADER, Integer.toString(config.getRequestedTokens()));
+        if (retryAfterNanos > 0) {
+            headers.put(RETRY_AFTER_HEADER, Long.toString(Math.max(1, (retryAfterNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND)));
+        }
+        return headers;
+    }
+}
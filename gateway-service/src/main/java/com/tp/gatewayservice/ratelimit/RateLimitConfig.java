@@ -0,0 +1,24 @@
+package com.tp.gatewayservice.ratelimit;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import reactor.core.publisher.Mono;
+
+@Configuration
+public class RateLimitConfig {
+
+    // Rate limits are per Keycloak user; anonymous requests resolve to no key and are refused by the filter
+    @Bean
+    public KeyResolver usernameKeyResolver() {
+        return exchange -> exchange.getPrincipal()
+                .flatMap(principal -> {
+                    if (principal instanceof JwtAuthenticationToken token) {
+                        String username = token.getToken().getClaimAsString("preferred_username");
+                        return Mono.justOrEmpty(username != null ? username : token.getName());
+                    }
+                    return Mono.justOrEmpty(principal.getName());
+                });
+    }
+}
@@ -0,0 +1,26 @@
+package com.tp.gatewayservice.ratelimit;
+
+import com.tp.gatewayservice.filters.ResponseCacheGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.stereotype.Component;
+
+// RequestRateLimiter with a fixed place in the chain: ahead of the response cache and coalescing filters,
+// which run before unordered route filters. Every request counts against the caller's bucket and gets
+// the X-RateLimit-* headers, whether it is answered from the cache or by the upstream service.
+@Component
+public class RateLimitGatewayFilterFactory extends RequestRateLimiterGatewayFilterFactory {
+    public static final int ORDER = ResponseCacheGatewayFilterFactory.ORDER - 1;
+
+    public RateLimitGatewayFilterFactory(RateLimiter<?> defaultRateLimiter, KeyResolver defaultKeyResolver) {
+        super(defaultRateLimiter, defaultKeyResolver);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter(super.apply(config), ORDER);
+    }
+}
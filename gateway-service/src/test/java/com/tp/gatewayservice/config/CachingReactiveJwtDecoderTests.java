@@ -0,0 +1,104 @@
+package com.tp.gatewayservice.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachingReactiveJwtDecoderTests {
+
+    // Counts verifications; tokens are "<subject>:<milliseconds until exp>", "<subject>" (no exp) or "bad"
+    static class CountingDecoder implements ReactiveJwtDecoder {
+        final AtomicInteger verifications = new AtomicInteger();
+        Sinks.Empty<Void> gate;
+
+        @Override
+        public Mono<Jwt> decode(String token) {
+            verifications.incrementAndGet();
+            if (token.equals("bad")) {
+                return Mono.error(new BadJwtException("bad signature"));
+            }
+            String[] parts = token.split(":");
+            Jwt.Builder jwt = Jwt.withTokenValue(token).header("alg", "RS256").subject(parts[0]);
+            if (parts.length > 1) {
+                jwt.expiresAt(Instant.now().plusMillis(Long.parseLong(parts[1])));
+            }
+            Mono<Jwt> decoded = Mono.just(jwt.build());
+            return gate == null ? decoded : gate.asMono().then(decoded);
+        }
+    }
+
+    private final CountingDecoder delegate = new CountingDecoder();
+
+    @Test
+    void verifiedTokensAreReusedUntilTheyExpire() throws InterruptedException {
+        CachingReactiveJwtDecoder decoder = decoder(Duration.ofMinutes(5));
+
+        assertThat(decode(decoder, "alice:300").getSubject()).isEqualTo("alice");
+        assertThat(decode(decoder, "alice:300").getSubject()).isEqualTo("alice");
+        assertThat(delegate.verifications).hasValue(1);
+
+        Thread.sleep(400);
+        decode(decoder, "alice:300");
+        assertThat(delegate.verifications).hasValue(2);
+    }
+
+    @Test
+    void maxTtlCapsLongLivedTokens() throws InterruptedException {
+        CachingReactiveJwtDecoder decoder = decoder(Duration.ofMillis(200));
+
+        decode(decoder, "alice:3600000");
+        decode(decoder, "alice:3600000");
+        Thread.sleep(300);
+        decode(decoder, "alice:3600000");
+
+        assertThat(delegate.verifications).hasValue(2);
+    }
+
+    @Test
+    void failuresAndTokensWithoutExpiryAreNotKept() {
+        CachingReactiveJwtDecoder decoder = decoder(Duration.ofMinutes(5));
+
+        assertThatThrownBy(() -> decode(decoder, "bad")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decode(decoder, "bad")).isInstanceOf(BadJwtException.class);
+        decode(decoder, "service");
+        decode(decoder, "service");
+
+        assertThat(delegate.verifications).hasValue(4);
+    }
+
+    @Test
+    void concurrentFirstUsesShareOneVerification() throws Exception {
+        CachingReactiveJwtDecoder decoder = decoder(Duration.ofMinutes(5));
+        delegate.gate = Sinks.empty();
+
+        CompletableFuture<Jwt> first = decoder.decode("alice:300").toFuture();
+        CompletableFuture<Jwt> second = decoder.decode("alice:300").toFuture();
+        // One caller going away leaves the verification running for the other
+        decoder.decode("alice:300").toFuture().cancel(true);
+        delegate.gate.tryEmitEmpty();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(second.get(5, TimeUnit.SECONDS));
+        assertThat(delegate.verifications).hasValue(1);
+    }
+
+    private CachingReactiveJwtDecoder decoder(Duration maxTtl) {
+        return new CachingReactiveJwtDecoder(delegate, new SimpleMeterRegistry(), 100, maxTtl);
+    }
+
+    private static Jwt decode(ReactiveJwtDecoder decoder, String token) {
+        return decoder.decode(token).block(Duration.ofSeconds(5));
+    }
+}
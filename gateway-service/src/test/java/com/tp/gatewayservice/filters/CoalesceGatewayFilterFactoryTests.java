@@ -0,0 +1,169 @@
+package com.tp.gatewayservice.filters;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class CoalesceGatewayFilterFactoryTests {
+    private static final Route ROUTE = Route.async().id("product-service").uri("lb://product-service")
+            .predicate(exchange -> true).build();
+    private static final String PRODUCTS = "/product-service/api/products";
+
+    private GatewayFilter filter;
+    private Upstream upstream;
+
+    // Holds every response until released; the body is sent in two buffers, like a chunked upstream response
+    static class Upstream implements GatewayFilterChain {
+        final AtomicInteger calls = new AtomicInteger();
+        final Sinks.Empty<Void> release = Sinks.empty();
+        String setCookie;
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            int call = calls.incrementAndGet();
+            return release.asMono().then(Mono.defer(() -> {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.OK);
+                response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                response.getHeaders().set(HttpHeaders.TRANSFER_ENCODING, "chunked");
+                if (setCookie != null) {
+                    response.getHeaders().set(HttpHeaders.SET_COOKIE, setCookie);
+                }
+                return response.writeWith(Flux.just("[\"call ", call + "\"]")
+                        .map(part -> response.bufferFactory().wrap(part.getBytes(StandardCharsets.UTF_8))));
+            }));
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        filter = new CoalesceGatewayFilterFactory(new SimpleMeterRegistry())
+                .apply(new CoalesceGatewayFilterFactory.Config());
+        upstream = new Upstream();
+    }
+
+    @Test
+    void identicalGetsInFlightShareOneUpstreamResponse() throws Exception {
+        ServerWebExchange leader = exchange(MockServerHttpRequest.get(PRODUCTS));
+        ServerWebExchange follower = exchange(MockServerHttpRequest.get(PRODUCTS));
+
+        CompletableFuture<Void> leading = filter.filter(leader, upstream).toFuture();
+        CompletableFuture<Void> following = filter.filter(follower, upstream).toFuture();
+        upstream.release.tryEmitEmpty();
+        CompletableFuture.allOf(leading, following).get(5, TimeUnit.SECONDS);
+
+        assertThat(upstream.calls).hasValue(1);
+        assertThat(body(follower)).isEqualTo(body(leader)).isEqualTo("[\"call 1\"]");
+        assertThat(follower.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(follower.getResponse().getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        // The leader's transfer headers do not apply to the copy
+        assertThat(follower.getResponse().getHeaders().getContentLength()).isEqualTo(10);
+        assertThat(follower.getResponse().getHeaders()).doesNotContainKey(HttpHeaders.TRANSFER_ENCODING);
+    }
+
+    @Test
+    void requestsNegotiatingAnotherRepresentationAreNotCoalesced() throws Exception {
+        CompletableFuture<Void> json = filter.filter(exchange(MockServerHttpRequest.get(PRODUCTS)), upstream).toFuture();
+        CompletableFuture<Void> csv = filter.filter(exchange(MockServerHttpRequest.get(PRODUCTS)
+                .accept(MediaType.parseMediaType("text/csv"))), upstream).toFuture();
+        upstream.release.tryEmitEmpty();
+        CompletableFuture.allOf(json, csv).get(5, TimeUnit.SECONDS);
+
+        assertThat(upstream.calls).hasValue(2);
+    }
+
+    @Test
+    void followersOfAnUnshareableResponseGoUpstream() throws Exception {
+        upstream.setCookie = "session=leader";
+        ServerWebExchange follower = exchange(MockServerHttpRequest.get(PRODUCTS));
+
+        CompletableFuture<Void> leading = filter.filter(exchange(MockServerHttpRequest.get(PRODUCTS)), upstream).toFuture();
+        CompletableFuture<Void> following = filter.filter(follower, upstream).toFuture();
+        upstream.release.tryEmitEmpty();
+        CompletableFuture.allOf(leading, following).get(5, TimeUnit.SECONDS);
+
+        assertThat(upstream.calls).hasValue(2);
+        assertThat(body(follower)).isEqualTo("[\"call 2\"]");
+    }
+
+    @Test
+    void requestsAfterTheLeaderFinishedGoUpstream() {
+        upstream.release.tryEmitEmpty();
+        filter.filter(exchange(MockServerHttpRequest.get(PRODUCTS)), upstream).block(Duration.ofSeconds(5));
+        ServerWebExchange later = exchange(MockServerHttpRequest.get(PRODUCTS));
+        filter.filter(later, upstream).block(Duration.ofSeconds(5));
+
+        assertThat(upstream.calls).hasValue(2);
+        assertThat(body(later)).isEqualTo("[\"call 2\"]");
+    }
+
+    @Test
+    void teePassesEveryBufferThroughAndHandsOverTheCopy() {
+        AtomicReference<byte[]> copy = new AtomicReference<>();
+
+        List<String> streamed = ResponseBodyTee.copying(buffers("ab", "cd", "e"), -1, 5, copy::set)
+                .map(CoalesceGatewayFilterFactoryTests::text)
+                .collectList().block(Duration.ofSeconds(5));
+
+        assertThat(streamed).containsExactly("ab", "cd", "e");
+        assertThat(copy.get()).asString(StandardCharsets.UTF_8).isEqualTo("abcde");
+    }
+
+    @Test
+    void teeDropsTheCopyOnceItGrowsPastTheLimit() {
+        AtomicReference<byte[]> copy = new AtomicReference<>();
+
+        List<String> streamed = ResponseBodyTee.copying(buffers("ab", "cd", "e"), 5, 4, copy::set)
+                .map(CoalesceGatewayFilterFactoryTests::text)
+                .collectList().block(Duration.ofSeconds(5));
+
+        assertThat(streamed).containsExactly("ab", "cd", "e");
+        assertThat(copy.get()).isNull();
+    }
+
+    private static Flux<DataBuffer> buffers(String... parts) {
+        return Flux.fromArray(parts)
+                .map(part -> DefaultDataBufferFactory.sharedInstance.wrap(part.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String text(DataBuffer buffer) {
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    private static ServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        ServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, ROUTE);
+        return exchange;
+    }
+
+    private static String body(ServerWebExchange exchange) {
+        return ((MockServerHttpResponse) exchange.getResponse()).getBodyAsString().block(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,196 @@
+package com.tp.gatewayservice.filters;
+
+import com.tp.gatewayservice.cache.ResponseCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class ResponseCacheGatewayFilterFactoryTests {
+    private static final Route ROUTE = Route.async().id("product-service").uri("lb://product-service")
+            .predicate(exchange -> true).build();
+    private static final String PRODUCTS = "/product-service/api/products";
+
+    private GatewayFilter filter;
+    private Upstream upstream;
+
+    // Answers every request with the next version of the body, and records what it was sent
+    static class Upstream implements GatewayFilterChain {
+        final List<ServerWebExchange> requests = new ArrayList<>();
+        String cacheControl;
+        String etag;
+        boolean notModified;
+        boolean gzipWhenAccepted;
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            requests.add(exchange);
+            ServerHttpResponse response = exchange.getResponse();
+            if (cacheControl != null) {
+                response.getHeaders().setCacheControl(cacheControl);
+            }
+            if (etag != null) {
+                response.getHeaders().setETag(etag);
+            }
+            String acceptEncoding = exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING);
+            if (gzipWhenAccepted && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                response.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            if (notModified) {
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                return response.writeWith(Mono.empty());
+            }
+            byte[] body = ("v" + requests.size()).getBytes(StandardCharsets.UTF_8);
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentLength(body.length);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        ResponseCache responseCache = new ResponseCache(new SimpleMeterRegistry(), DataSize.ofMegabytes(1),
+                DataSize.ofKilobytes(1), Duration.ofMinutes(5));
+        ResponseCacheGatewayFilterFactory.Config config = new ResponseCacheGatewayFilterFactory.Config();
+        config.setReadOnlyPaths(List.of(PRODUCTS + "/batch"));
+        filter = new ResponseCacheGatewayFilterFactory(responseCache).apply(config);
+        upstream = new Upstream();
+    }
+
+    @Test
+    void repeatedGetsAreServedFromTheCache() {
+        ServerWebExchange first = send(MockServerHttpRequest.get(PRODUCTS + "?page=0"));
+        ServerWebExchange second = send(MockServerHttpRequest.get(PRODUCTS + "?page=0"));
+        ServerWebExchange otherPage = send(MockServerHttpRequest.get(PRODUCTS + "?page=1"));
+
+        assertThat(cacheStatus(first)).isEqualTo("MISS");
+        assertThat(cacheStatus(second)).isEqualTo("HIT");
+        assertThat(body(second)).isEqualTo("v1");
+        assertThat(body(otherPage)).isEqualTo("v2");
+        assertThat(upstream.requests).hasSize(2);
+    }
+
+    @Test
+    void callersWithOtherRolesDoNotShareEntries() {
+        send(MockServerHttpRequest.get(PRODUCTS), user("alice", "ROLE_CLIENT"));
+        ServerWebExchange sameRoles = send(MockServerHttpRequest.get(PRODUCTS), user("bob", "ROLE_CLIENT"));
+        ServerWebExchange admin = send(MockServerHttpRequest.get(PRODUCTS), user("carol", "ROLE_ADMIN"));
+
+        assertThat(cacheStatus(sameRoles)).isEqualTo("HIT");
+        assertThat(cacheStatus(admin)).isEqualTo("MISS");
+        assertThat(body(admin)).isEqualTo("v2");
+    }
+
+    @Test
+    void clientsAcceptingAnotherEncodingDoNotShareEntries() {
+        upstream.gzipWhenAccepted = true;
+        ServerWebExchange gzipped = send(MockServerHttpRequest.get(PRODUCTS).header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+        ServerWebExchange identity = send(MockServerHttpRequest.get(PRODUCTS));
+        ServerWebExchange gzippedAgain = send(MockServerHttpRequest.get(PRODUCTS).header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+
+        assertThat(cacheStatus(identity)).isEqualTo("MISS");
+        assertThat(identity.getResponse().getHeaders()).doesNotContainKey(HttpHeaders.CONTENT_ENCODING);
+        assertThat(cacheStatus(gzippedAgain)).isEqualTo("HIT");
+        assertThat(gzippedAgain.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(body(gzippedAgain)).isEqualTo(body(gzipped)).isEqualTo("v1");
+        assertThat(upstream.requests).hasSize(2);
+    }
+
+    @Test
+    void privateAndNoStoreResponsesAreNotKept() {
+        upstream.cacheControl = "private, max-age=60";
+        send(MockServerHttpRequest.get(PRODUCTS));
+        upstream.cacheControl = "no-store";
+        send(MockServerHttpRequest.get(PRODUCTS));
+        ServerWebExchange third = send(MockServerHttpRequest.get(PRODUCTS));
+
+        assertThat(cacheStatus(third)).isEqualTo("MISS");
+        assertThat(upstream.requests).hasSize(3);
+    }
+
+    @Test
+    void staleEntriesAreRevalidatedWithTheirETag() {
+        upstream.cacheControl = "max-age=0";
+        upstream.etag = "\"v1\"";
+        send(MockServerHttpRequest.get(PRODUCTS));
+
+        upstream.notModified = true;
+        ServerWebExchange revalidated = send(MockServerHttpRequest.get(PRODUCTS));
+
+        assertThat(upstream.requests.get(1).getRequest().getHeaders().getIfNoneMatch()).containsExactly("\"v1\"");
+        assertThat(revalidated.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(cacheStatus(revalidated)).isEqualTo("REVALIDATED");
+        assertThat(body(revalidated)).isEqualTo("v1");
+    }
+
+    @Test
+    void clientsWithTheCachedETagGetNotModified() {
+        upstream.etag = "\"v1\"";
+        send(MockServerHttpRequest.get(PRODUCTS));
+
+        ServerWebExchange conditional = send(MockServerHttpRequest.get(PRODUCTS).ifNoneMatch("W/\"v1\""));
+
+        assertThat(conditional.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(cacheStatus(conditional)).isEqualTo("HIT");
+    }
+
+    @Test
+    void writesDropTheRouteEntriesButReadOnlyPostsDoNot() {
+        send(MockServerHttpRequest.get(PRODUCTS));
+
+        send(MockServerHttpRequest.post(PRODUCTS + "/batch"));
+        assertThat(cacheStatus(send(MockServerHttpRequest.get(PRODUCTS)))).isEqualTo("HIT");
+
+        send(MockServerHttpRequest.put(PRODUCTS + "/1"));
+        ServerWebExchange afterUpdate = send(MockServerHttpRequest.get(PRODUCTS));
+        assertThat(cacheStatus(afterUpdate)).isEqualTo("MISS");
+        assertThat(body(afterUpdate)).isEqualTo("v4");
+    }
+
+    private ServerWebExchange send(MockServerHttpRequest.BaseBuilder<?> request) {
+        return send(MockServerWebExchange.from(request));
+    }
+
+    private ServerWebExchange send(MockServerHttpRequest.BaseBuilder<?> request, Principal principal) {
+        return send(MockServerWebExchange.from(request).mutate().principal(Mono.just(principal)).build());
+    }
+
+    private ServerWebExchange send(ServerWebExchange exchange) {
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, ROUTE);
+        filter.filter(exchange, upstream).block(Duration.ofSeconds(5));
+        return exchange;
+    }
+
+    private static Principal user(String name, String role) {
+        return new TestingAuthenticationToken(name, null, role);
+    }
+
+    private static String cacheStatus(ServerWebExchange exchange) {
+        return exchange.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER);
+    }
+
+    private static String body(ServerWebExchange exchange) {
+        return ((MockServerHttpResponse) exchange.getResponse()).getBodyAsString().block(Duration.ofSeconds(5));
+    }
+}
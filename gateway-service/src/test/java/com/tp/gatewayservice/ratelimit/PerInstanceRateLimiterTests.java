@@ -0,0 +1,133 @@
+package com.tp.gatewayservice.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Routes without their own config use the defaults given to the constructor; one instance unless a test says otherwise
+class PerInstanceRateLimiterTests {
+
+    @Test
+    void allowsABurstThenRefusesWithRetryAfter() {
+        PerInstanceRateLimiter limiter = limiter(1, 3);
+
+        assertThat(remaining(limiter.isAllowed("orders", "alice").block())).isEqualTo("2");
+        assertThat(remaining(limiter.isAllowed("orders", "alice").block())).isEqualTo("1");
+        assertThat(remaining(limiter.isAllowed("orders", "alice").block())).isEqualTo("0");
+        Response refused = limiter.isAllowed("orders", "alice").block();
+
+        assertThat(refused.isAllowed()).isFalse();
+        assertThat(refused.getHeaders()).containsEntry(PerInstanceRateLimiter.RETRY_AFTER_HEADER, "1")
+                .containsEntry(PerInstanceRateLimiter.REMAINING_HEADER, "0");
+    }
+
+    @Test
+    void tokensComeBackAtTheReplenishRate() throws InterruptedException {
+        PerInstanceRateLimiter limiter = limiter(20, 1);
+
+        assertThat(limiter.isAllowed("orders", "alice").block().isAllowed()).isTrue();
+        assertThat(limiter.isAllowed("orders", "alice").block().isAllowed()).isFalse();
+        Thread.sleep(100);
+        assertThat(limiter.isAllowed("orders", "alice").block().isAllowed()).isTrue();
+    }
+
+    @Test
+    void everyRouteAndKeyHasItsOwnBucket() {
+        PerInstanceRateLimiter limiter = limiter(1, 1);
+
+        assertThat(limiter.isAllowed("orders", "alice").block().isAllowed()).isTrue();
+        assertThat(limiter.isAllowed("orders", "bob").block().isAllowed()).isTrue();
+        assertThat(limiter.isAllowed("products", "alice").block().isAllowed()).isTrue();
+        assertThat(limiter.isAllowed("orders", "alice").block().isAllowed()).isFalse();
+    }
+
+    // The CAS loop neither loses nor double-spends tokens when requests of one key race
+    @Test
+    void concurrentRequestsSpendExactlyTheBurst() throws Exception {
+        PerInstanceRateLimiter limiter = limiter(1, 40_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> threads = new ArrayList<>();
+        try {
+            for (int t = 0; t < 8; t++) {
+                threads.add(executor.submit(() -> {
+                    start.await();
+                    int allowed = 0;
+                    for (int i = 0; i < 10_000; i++) {
+                        if (limiter.isAllowed("orders", "alice").block().isAllowed()) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            start.countDown();
+            int allowed = 0;
+            for (Future<Integer> thread : threads) {
+                allowed += thread.get(10, TimeUnit.SECONDS);
+            }
+
+            // One more token may have come back while the threads ran
+            assertThat(allowed).isBetween(40_000, 40_001);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Two gateways behind a load balancer: each allows half of the burst, and refills at half the rate
+    @Test
+    void eachInstanceEnforcesItsShareOfTheLimits() throws InterruptedException {
+        PerInstanceRateLimiter limiter = limiter(10, 4, 2);
+
+        assertThat(remaining(limiter.isAllowed("orders", "alice").block())).isEqualTo("1");
+        assertThat(remaining(limiter.isAllowed("orders", "alice").block())).isEqualTo("0");
+        Response refused = limiter.isAllowed("orders", "alice").block();
+        assertThat(refused.isAllowed()).isFalse();
+        assertThat(refused.getHeaders()).containsEntry(PerInstanceRateLimiter.REPLENISH_RATE_HEADER, "10")
+                .containsEntry(PerInstanceRateLimiter.BURST_CAPACITY_HEADER, "4");
+
+        // A token comes back every 200ms here, not every 100ms
+        Thread.sleep(50);
+        assertThat(limiter.isAllowed("orders", "alice").block().isAllowed()).isFalse();
+        Thread.sleep(250);
+        assertThat(limiter.isAllowed("orders", "alice").block().isAllowed()).isTrue();
+    }
+
+    @Test
+    void invalidConfigIsAnError() {
+        PerInstanceRateLimiter limiter = limiter(0, 1);
+        // Each of three instances would get a third of a token
+        PerInstanceRateLimiter tooManyInstances = limiter(1, 1, 3);
+
+        assertThatThrownBy(() -> limiter.isAllowed("orders", "alice").block())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> tooManyInstances.isAllowed("orders", "alice").block())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static PerInstanceRateLimiter limiter(int replenishRate, int burstCapacity) {
+        return limiter(replenishRate, burstCapacity, 1);
+    }
+
+    private static PerInstanceRateLimiter limiter(int replenishRate, int burstCapacity, int instances) {
+        return new PerInstanceRateLimiter(null, new SimpleMeterRegistry(), 1000, Duration.ofMinutes(10),
+                replenishRate, burstCapacity, instances);
+    }
+
+    private static String remaining(Response response) {
+        assertThat(response.isAllowed()).isTrue();
+        return response.getHeaders().get(PerInstanceRateLimiter.REMAINING_HEADER);
+    }
+}
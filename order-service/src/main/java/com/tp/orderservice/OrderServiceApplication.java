@@ -7,7 +7,9 @@ import com.tp.orderservice.services.OrderService;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -15,7 +17,10 @@ import java.util.List;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 
-@SpringBootApplication
+// The outbox and its relay come from common-events
+@SpringBootApplication(scanBasePackages = {"com.tp.orderservice", "com.tp.common.events"})
+@EntityScan({"com.tp.orderservice", "com.tp.common.events"})
+@EnableJpaRepositories({"com.tp.orderservice", "com.tp.common.events"})
 @EnableFeignClients
 @EnableDiscoveryClient
 public class OrderServiceApplication {
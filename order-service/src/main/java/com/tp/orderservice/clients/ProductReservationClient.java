@@ -0,0 +1,37 @@
+package com.tp.orderservice.clients;
+
+import com.tp.orderservice.config.ServiceTokenFeignConfig;
+import com.tp.orderservice.model.StockReservation;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
+
+// Stock reservations are only accepted from this service's own identity (SERVICE role), so these calls carry
+// its client-credentials token instead of the user's
+@FeignClient(
+        name = "product-service",
+        contextId = "productReservations",
+        url = "${PRODUCT_SERVICE_URL:}",
+        configuration = ServiceTokenFeignConfig.class
+)
+public interface ProductReservationClient {
+
+    // One reservation per order, in the same order; atomically takes the stock of all of them, or fails with
+    // 409 and takes nothing
+    @PostMapping("/api/products/reservations/batch")
+    List<StockReservation> reserveAll(@RequestBody List<StockReservation> reservations);
+
+    @PostMapping("/api/products/reservations/batch/confirm")
+    List<StockReservation> confirmAll(@RequestBody List<String> ids);
+
+    // Only for reservations never confirmed: the order transaction rolled back
+    @PostMapping("/api/products/reservations/batch/release")
+    List<StockReservation> releaseAll(@RequestBody List<String> ids);
+
+    // The order was canceled, confirmed or not
+    @PostMapping("/api/products/reservations/{id}/cancel")
+    StockReservation cancelReservation(@PathVariable("id") String id);
+}
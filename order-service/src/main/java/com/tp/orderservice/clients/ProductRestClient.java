@@ -5,13 +5,22 @@ import com.tp.orderservice.model.Product;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.Collection;
+import java.util.List;
+
+// Resolved through Eureka and the load balancer; PRODUCT_SERVICE_URL pins a fixed address instead (local runs)
 @FeignClient(
         name = "product-service",
-        url = "${PRODUCT_SERVICE_URL:http://product-service:8081}",
+        url = "${PRODUCT_SERVICE_URL:}",
         configuration = FeignSecurityConfig.class
 )
 public interface ProductRestClient {
     @GetMapping("/api/products/{id}")
     Product getProductById(@PathVariable("id") Long id);
+
+    // Unknown ids are simply absent from the result
+    @GetMapping("/api/products/batch")
+    List<Product> getProductsByIds(@RequestParam("ids") Collection<Long> ids);
 }
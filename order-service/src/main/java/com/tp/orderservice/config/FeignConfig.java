@@ -14,7 +14,9 @@ public class FeignConfig {
     public RequestInterceptor requestInterceptor() {
         return requestTemplate -> {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication instanceof JwtAuthenticationToken jwtAuth) {
+            // Requests already signed with the service token (ServiceTokenFeignConfig) keep it
+            if (authentication instanceof JwtAuthenticationToken jwtAuth
+                    && !requestTemplate.headers().containsKey("Authorization")) {
                 String tokenValue = jwtAuth.getToken().getTokenValue();
                 requestTemplate.header("Authorization", "Bearer " + tokenValue);
             }
@@ -0,0 +1,44 @@
+package com.tp.orderservice.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.core5.util.TimeValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.openfeign.clientconfig.HttpClient5FeignConfiguration.HttpClientBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Feign clients run on the pooled Apache HttpClient 5 set up by Spring Cloud OpenFeign
+// (pool size and timeouts: spring.cloud.openfeign.httpclient.* / client.config.default.*).
+// This adds what it leaves out: closing idle keep-alive connections, the compression switch and pool metrics.
+@Configuration
+public class FeignHttpClientConfig {
+
+    @Bean
+    public HttpClientBuilderCustomizer feignHttpClientTuning(
+            @Value("${app.feign.idle-eviction:30s}") Duration idleEviction,
+            @Value("${app.feign.compression.enabled:true}") boolean compression) {
+        return builder -> {
+            // Closed before product-service (or a proxy) drops them, so a call never picks a dead connection
+            builder.evictIdleConnections(TimeValue.ofMilliseconds(idleEviction.toMillis()));
+            if (!compression) {
+                // Otherwise requests advertise gzip/deflate and responses are inflated transparently
+                builder.disableContentCompression();
+            }
+        };
+    }
+
+    // httpcomponents.httpclient.pool.* gauges (leased / available / pending, limits), httpclient=feign
+    @Bean
+    public MeterBinder feignConnectionPoolMetrics(HttpClientConnectionManager hc5ConnectionManager) {
+        return registry -> {
+            if (hc5ConnectionManager instanceof PoolingHttpClientConnectionManager pool) {
+                new PoolingHttpClientConnectionManagerMetricsBinder(pool, "feign").bindTo(registry);
+            }
+        };
+    }
+}
@@ -16,7 +16,8 @@ public class FeignSecurityConfig {
     public RequestInterceptor bearerTokenRequestInterceptor() {
         return template -> {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication instanceof JwtAuthenticationToken jwtAuth) {
+            if (authentication instanceof JwtAuthenticationToken jwtAuth
+                    && !template.headers().containsKey(HttpHeaders.AUTHORIZATION)) {
                 String tokenValue = jwtAuth.getToken().getTokenValue();
                 if (tokenValue != null && !tokenValue.isEmpty()) {
                     template.header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenValue);
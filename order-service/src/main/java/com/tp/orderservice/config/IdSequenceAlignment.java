@@ -0,0 +1,49 @@
+package com.tp.orderservice.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Order and OrderItem ids used to be identity columns. On a database created before they moved to sequences,
+// ddl-auto creates orders_seq / order_item_seq starting at 1, below the ids already in use: each sequence is
+// moved past its table's highest id before the first insert. Nothing to do once a sequence is ahead.
+@Component
+public class IdSequenceAlignment {
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceAlignment.class);
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "orders_seq", "orders",
+            "order_item_seq", "order_item");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // The EntityManagerFactory dependency makes this run after the schema update
+    public IdSequenceAlignment(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void align() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            return;
+        }
+        SEQUENCES.forEach((sequence, table) -> {
+            // Pooled ids: after setval(max) the next block handed out is max + 1 .. max + allocationSize.
+            // A sequence that was never called is always moved; one in use only if it is behind the table
+            Long moved = jdbcTemplate.query(
+                    "SELECT setval('" + sequence + "', max(id)) FROM " + table + " HAVING max(id) > "
+                            + "(SELECT CASE WHEN is_called THEN last_value ELSE 0 END FROM " + sequence + ")",
+                    rs -> rs.next() ? rs.getLong(1) : null);
+            if (moved != null) {
+                log.info("Moved sequence {} past existing {} ids (last value {})", sequence, table, moved);
+            }
+        });
+    }
+}
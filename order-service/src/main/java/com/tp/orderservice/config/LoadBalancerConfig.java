@@ -0,0 +1,11 @@
+package com.tp.orderservice.config;
+
+import com.tp.common.loadbalancer.PeakEwmaLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+// product-service instances are resolved through Eureka and picked by latency (PeakEwmaLoadBalancer)
+@Configuration
+@LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
@@ -0,0 +1,21 @@
+package com.tp.orderservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ProductLookupConfig {
+
+    // One virtual thread per product-service call. The delegating wrapper copies the caller's
+    // SecurityContext onto each task so the Feign interceptors can still forward the bearer token.
+    @Bean(destroyMethod = "close")
+    public ExecutorService productLookupExecutor() {
+        ExecutorService virtualThreads = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("product-lookup-", 0).factory());
+        return new DelegatingSecurityContextExecutorService(virtualThreads);
+    }
+}
@@ -1,16 +1,24 @@
 package com.tp.orderservice.config;
 
+import com.tp.common.security.CachingJwtDecoder;
+import com.tp.common.security.KeycloakJwtAuthenticationConverter;
+import com.tp.common.security.RefreshingJwkSource;
+import com.tp.common.security.ServiceTokenProvider;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.convert.converter.Converter;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
 import org.springframework.security.oauth2.core.OAuth2Error;
 import org.springframework.security.oauth2.core.OAuth2TokenValidator;
@@ -19,13 +27,12 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtValidators;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -42,10 +49,19 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/actuator/**").permitAll()
 
+                        // Product snapshot cache invalidation - only ADMIN
+                        .requestMatchers("/api/product-cache/**").hasRole("ADMIN")
+
+                        // Events relayed by other services carry their client-credentials token
+                        .requestMatchers(HttpMethod.POST, "/api/events").hasRole(ServiceTokenProvider.SERVICE_ROLE)
+
                         // Order endpoints
                         // GET requests - accessible by ADMIN and CLIENT
                         .requestMatchers(HttpMethod.GET, "/api/orders/**").hasAnyRole("ADMIN", "CLIENT")
 
+                        // Rebuilding the order stats - only ADMIN
+                        .requestMatchers(HttpMethod.POST, "/api/orders/stats/rebuild").hasRole("ADMIN")
+
                         // POST - ADMIN and CLIENT can create orders
                         .requestMatchers(HttpMethod.POST, "/api/orders/**").hasAnyRole("ADMIN", "CLIENT")
 
@@ -62,44 +78,48 @@ public class SecurityConfig {
     }
 
     @Bean
-    public JwtAuthenticationConverter jwtAuthenticationConverter() {
-        JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
-        converter.setJwtGrantedAuthoritiesConverter(new KeycloakRoleConverter());
-        return converter;
+    public KeycloakJwtAuthenticationConverter jwtAuthenticationConverter() {
+        return new KeycloakJwtAuthenticationConverter();
     }
 
+    // Token of this service's own Keycloak client (spring.security.oauth2.client.registration.keycloak-service)
     @Bean
-    public JwtDecoder jwtDecoder(
+    public ServiceTokenProvider serviceTokenProvider(ClientRegistrationRepository registrations,
+                                                     OAuth2AuthorizedClientService authorizedClients) {
+        return new ServiceTokenProvider(registrations, authorizedClients, "keycloak-service");
+    }
+
+    // Keys are fetched at startup and refreshed in the background, never on a request thread
+    @Bean(destroyMethod = "close")
+    public RefreshingJwkSource jwkSource(
             @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri:http://localhost:8080/realms/microservices-realm/protocol/openid-connect/certs}") String jwkSetUri,
-            @Value("${app.security.allowed-issuers:http://localhost:8080/realms/microservices-realm,http://keycloak:8080/realms/microservices-realm}") String allowedIssuers) {
-        NimbusJwtDecoder decoder = NimbusJwtDecoder.withJwkSetUri(jwkSetUri).build();
+            @Value("${app.security.jwks.refresh-interval:5m}") Duration refreshInterval,
+            @Value("${app.security.jwks.min-refresh-gap:10s}") Duration minRefreshGap) throws MalformedURLException {
+        RefreshingJwkSource jwkSource = new RefreshingJwkSource(URI.create(jwkSetUri).toURL(), refreshInterval, minRefreshGap);
+        jwkSource.prefetch();
+        return jwkSource;
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(
+            RefreshingJwkSource jwkSource,
+            @Value("${app.security.allowed-issuers:http://localhost:8080/realms/microservices-realm,http://keycloak:8080/realms/microservices-realm}") String allowedIssuers,
+            @Value("${app.security.jwt-cache.max-size:10000}") long cacheMaxSize,
+            @Value("${app.security.jwt-cache.max-ttl:5m}") Duration cacheMaxTtl,
+            MeterRegistry meterRegistry) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        // Claims are checked by the Spring validators below
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(jwtProcessor);
 
         OAuth2TokenValidator<Jwt> withTimestamp = JwtValidators.createDefault();
         OAuth2TokenValidator<Jwt> issuerValidator = new AllowedIssuersValidator(parseAllowedIssuers(allowedIssuers));
 
         decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(withTimestamp, issuerValidator));
-        return decoder;
-    }
-
-    // Custom converter to extract roles from Keycloak JWT
-    static class KeycloakRoleConverter implements Converter<Jwt, Collection<GrantedAuthority>> {
-        @Override
-        public Collection<GrantedAuthority> convert(Jwt jwt) {
-            Map<String, Object> realmAccess = jwt.getClaim("realm_access");
-            if (realmAccess == null || realmAccess.isEmpty()) {
-                return List.of();
-            }
-
-            @SuppressWarnings("unchecked")
-            List<String> roles = (List<String>) realmAccess.get("roles");
-            if (roles == null) {
-                return List.of();
-            }
-
-            return roles.stream()
-                    .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
-                    .collect(Collectors.toList());
-        }
+        // The gateway forwards the same token on every request of a session; verify it once per cache entry
+        return new CachingJwtDecoder(decoder, meterRegistry, cacheMaxSize, cacheMaxTtl);
     }
 
     // Custom validator to accept tokens issued for localhost (external) or keycloak (inside Docker)
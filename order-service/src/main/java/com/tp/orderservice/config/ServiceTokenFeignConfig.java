@@ -0,0 +1,36 @@
+package com.tp.orderservice.config;
+
+import com.tp.common.security.ServiceTokenProvider;
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+
+// Configuration of ProductReservationClient only, hence no @Configuration: the other Feign clients keep
+// forwarding the user's token. This interceptor runs first, and the user-token ones skip requests it signed
+public class ServiceTokenFeignConfig {
+
+    @Bean
+    public RequestInterceptor serviceTokenRequestInterceptor(ServiceTokenProvider serviceTokens) {
+        return new ServiceTokenRequestInterceptor(serviceTokens);
+    }
+
+    static class ServiceTokenRequestInterceptor implements RequestInterceptor, Ordered {
+        private final ServiceTokenProvider serviceTokens;
+
+        ServiceTokenRequestInterceptor(ServiceTokenProvider serviceTokens) {
+            this.serviceTokens = serviceTokens;
+        }
+
+        @Override
+        public void apply(RequestTemplate template) {
+            template.header(HttpHeaders.AUTHORIZATION, "Bearer " + serviceTokens.getToken());
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
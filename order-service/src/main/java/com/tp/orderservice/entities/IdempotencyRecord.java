@@ -0,0 +1,54 @@
+package com.tp.orderservice.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+// The order created for an Idempotency-Key, stored in the same transaction as the order, until it expires
+@Entity
+@Table(indexes = @Index(name = "idx_idempotency_expires", columnList = "expiresAt"))
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class IdempotencyRecord implements Persistable<String> {
+    // SHA-256 of the caller and the key: keys are only unique per caller
+    @Id
+    @Column(length = 64)
+    private String id;
+    // SHA-256 of the request body, so a key reused for a different order is refused
+    @Column(length = 64, nullable = false)
+    private String requestHash;
+    private Long orderId;
+    // The order as it was returned, JSON
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String response;
+    @Column(nullable = false)
+    private Instant createdAt;
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    // A new record is always inserted, never merged: a concurrent insert of the same key then fails on the
+    // primary key instead of overwriting the record that won
+    @Transient
+    @Builder.Default
+    private boolean isNew = true;
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+}
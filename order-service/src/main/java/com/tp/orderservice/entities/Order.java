@@ -1,5 +1,6 @@
 package com.tp.orderservice.entities;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.tp.orderservice.enums.OrderStatus;
 import jakarta.persistence.*;
 import lombok.*;
@@ -15,8 +16,10 @@ import java.util.List;
 @NoArgsConstructor
 @Builder
 public class Order {
+    // Ids come from a sequence in blocks of 50, so new orders can be inserted in JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
     private LocalDateTime orderDate;
 
@@ -28,6 +31,13 @@ public class Order {
     // Owner username (preferred_username from JWT)
     private String userId;
 
+    // Stock reservation taken in product-service when the order was created
+    private String reservationId;
+
+    // Why an asynchronously submitted order ended up CANCELED
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String failureReason;
+
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
     private List<OrderItem> orderItems;
 }
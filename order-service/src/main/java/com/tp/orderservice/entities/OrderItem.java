@@ -1,5 +1,6 @@
 package com.tp.orderservice.entities;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.*;
@@ -12,18 +13,26 @@ import lombok.*;
 @Builder
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_item_seq", allocationSize = 50)
     private Long id;
+    @Column(updatable = false)
     private Long productId;
     private Integer quantity;
+    // Unit price and product name as they were when the order was placed; never refreshed afterwards
+    @Column(updatable = false)
     private Double price;
+    @Column(updatable = false)
+    private String productName;
 
     @ManyToOne
     @JoinColumn(name = "order_id")
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private Order order;
 
+    // Live product-service data, only filled on reads with ?expand=liveProduct
     @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private com.tp.orderservice.model.Product product;
 
 }
@@ -0,0 +1,22 @@
+package com.tp.orderservice.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+
+// One running total of the order statistics (OrderStatsService), kept up to date by every order change
+@Entity
+@Table(name = "order_stat")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderStat {
+    // <dimension>:<bucket>, e.g. user:alice, status:CONFIRMED, day:2026-10-18
+    @Id
+    private String id;
+    private long orderCount;
+    private double amount;
+}
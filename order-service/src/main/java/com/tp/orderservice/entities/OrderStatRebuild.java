@@ -0,0 +1,22 @@
+package com.tp.orderservice.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+
+import java.time.Instant;
+
+// When the order statistics were last rebuilt, by any instance (one row, see OrderStatBulkRepository.claimRebuild)
+@Entity
+@Table(name = "order_stat_rebuild")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderStatRebuild {
+    @Id
+    private int id;
+    private Instant rebuiltAt;
+}
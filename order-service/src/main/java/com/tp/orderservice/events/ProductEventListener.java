@@ -0,0 +1,38 @@
+package com.tp.orderservice.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tp.common.events.DomainEvent;
+import com.tp.orderservice.model.Product;
+import com.tp.orderservice.services.ProductCache;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+// Keeps the product near-cache current from product-service's events instead of waiting for the TTL
+@Component
+public class ProductEventListener {
+    private static final String SOURCE = "product-service";
+
+    private final ProductCache productCache;
+    private final ObjectMapper objectMapper;
+
+    public ProductEventListener(ProductCache productCache, ObjectMapper objectMapper) {
+        this.productCache = productCache;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener
+    public void on(DomainEvent event) throws JsonProcessingException {
+        if (!SOURCE.equals(event.source())) {
+            return;
+        }
+        switch (event.type()) {
+            case "ProductCreated", "ProductUpdated" ->
+                    productCache.refresh(objectMapper.treeToValue(event.payload(), Product.class));
+            case "ProductDeleted" -> productCache.invalidate(Long.valueOf(event.aggregateId()));
+            default -> {
+                // not used here
+            }
+        }
+    }
+}
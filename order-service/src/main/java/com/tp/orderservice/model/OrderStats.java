@@ -0,0 +1,20 @@
+package com.tp.orderservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.tp.orderservice.enums.OrderStatus;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// GET /api/orders/stats: a user's order count and spend; for admins also the sales per status and per day
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OrderStats(String userId, Totals user, Map<OrderStatus, Totals> byStatus, List<DayTotals> byDay) {
+
+    public record Totals(long orderCount, double amount) {
+        public static final Totals NONE = new Totals(0, 0);
+    }
+
+    public record DayTotals(LocalDate day, long orderCount, double amount) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.tp.orderservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.tp.orderservice.entities.Order;
+import com.tp.orderservice.enums.OrderStatus;
+
+// Where an asynchronously submitted order stands: PENDING until a worker confirms or cancels it
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OrderSubmission(Long id, OrderStatus status, String failureReason) {
+
+    public static OrderSubmission of(Order order) {
+        return new OrderSubmission(order.getId(), order.getStatus(), order.getFailureReason());
+    }
+}
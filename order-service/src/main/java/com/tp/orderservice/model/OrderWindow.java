@@ -0,0 +1,9 @@
+package com.tp.orderservice.model;
+
+import com.tp.orderservice.entities.Order;
+
+import java.util.List;
+
+// One keyset-scrolled slice of orders; pass nextCursor back to get the following slice (null on the last one)
+public record OrderWindow(List<Order> content, String nextCursor) {
+}
@@ -1,5 +1,6 @@
 package com.tp.orderservice.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -10,4 +11,20 @@ public class Product {
     private String name;
     private Double price;
     private Integer stockQuantity;
+    // product-service's optimistic-lock version, so a redelivered older snapshot cannot replace a newer one
+    private Long version;
+    // Set on last-known snapshots served while product-service is unavailable
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean stale;
+
+    public Product staleCopy() {
+        Product copy = new Product();
+        copy.setId(id);
+        copy.setName(name);
+        copy.setPrice(price);
+        copy.setStockQuantity(stockQuantity);
+        copy.setVersion(version);
+        copy.setStale(true);
+        return copy;
+    }
 }
@@ -0,0 +1,15 @@
+package com.tp.orderservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservedItem {
+    private Long productId;
+    private Integer quantity;
+}
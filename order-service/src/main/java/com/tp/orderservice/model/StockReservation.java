@@ -0,0 +1,18 @@
+package com.tp.orderservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockReservation {
+    private String id;
+    private String status;
+    private List<ReservedItem> items;
+}
@@ -0,0 +1,24 @@
+package com.tp.orderservice.repository;
+
+import com.tp.orderservice.entities.IdempotencyRecord;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    @Query("select r.id from IdempotencyRecord r where r.expiresAt < :now order by r.expiresAt")
+    List<String> findExpiredIds(@Param("now") Instant now, Limit limit);
+
+    // Takes over a key whose record expired but was not cleaned up yet; 0 when the key is live (or absent)
+    @Modifying(flushAutomatically = true)
+    @Query("update IdempotencyRecord r set r.requestHash = :#{#record.requestHash}, r.orderId = :#{#record.orderId}, "
+            + "r.response = :#{#record.response}, r.createdAt = :#{#record.createdAt}, "
+            + "r.expiresAt = :#{#record.expiresAt} where r.id = :#{#record.id} and r.expiresAt < :now")
+    int replaceExpired(@Param("record") IdempotencyRecord record, @Param("now") Instant now);
+}
@@ -1,10 +1,47 @@
 package com.tp.orderservice.repository;
 
 import com.tp.orderservice.entities.Order;
+import com.tp.orderservice.enums.OrderStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
+// Unpaged reads fetch orderItems in the same query. Paged/scrolled reads cannot join-fetch a
+// collection without paging in memory, so their items are loaded by Hibernate batch fetching
+// (hibernate.default_batch_fetch_size): one extra query per page instead of one per order.
 public interface OrderRepository extends JpaRepository<Order, Long> {
+    @Override
+    @EntityGraph(attributePaths = "orderItems")
+    List<Order> findAll();
+
+    @EntityGraph(attributePaths = "orderItems")
     List<Order> findByUserId(String userId);
+
+    @EntityGraph(attributePaths = "orderItems")
+    Optional<Order> findWithItemsById(Long id);
+
+    Page<Order> findByUserId(String userId, Pageable pageable);
+
+    // Keyset scrolling, newest first. The (orderDate, id) pair is the cursor.
+    Window<Order> findAllByOrderByOrderDateDescIdDesc(ScrollPosition position, Limit limit);
+
+    Window<Order> findByUserIdOrderByOrderDateDescIdDesc(String userId, ScrollPosition position, Limit limit);
+
+    List<Order> findByStatusAndOrderDateBefore(OrderStatus status, LocalDateTime before);
+
+    // Compare-and-set on the status: a submission worker and the stale-order sweep cannot both move a PENDING order
+    @Modifying
+    @Query("update Order o set o.status = :to where o.id = :id and o.status = :from")
+    int transition(@Param("id") Long id, @Param("from") OrderStatus from, @Param("to") OrderStatus to);
 }
@@ -0,0 +1,100 @@
+package com.tp.orderservice.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+// Plain JDBC access to the order_stat running totals: increments are applied in the database (never read,
+// changed and written back), so concurrent order transactions only queue on the rows they share.
+@Repository
+public class OrderStatBulkRepository {
+
+    public record Increment(long orderCount, double amount) {
+    }
+
+    private static final String UPSERT_POSTGRESQL = "INSERT INTO order_stat (id, order_count, amount) VALUES (?, ?, ?) "
+            + "ON CONFLICT (id) DO UPDATE SET "
+            + "order_count = order_stat.order_count + EXCLUDED.order_count, "
+            + "amount = order_stat.amount + EXCLUDED.amount";
+
+    // Other databases (H2 in tests)
+    private static final String UPSERT_STANDARD = "MERGE INTO order_stat s "
+            + "USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS BIGINT), CAST(? AS DOUBLE PRECISION))) "
+            + "AS d (id, order_count, amount) ON s.id = d.id "
+            + "WHEN MATCHED THEN UPDATE SET order_count = s.order_count + d.order_count, amount = s.amount + d.amount "
+            + "WHEN NOT MATCHED THEN INSERT (id, order_count, amount) VALUES (d.id, d.order_count, d.amount)";
+
+    // What every total (ids as in OrderStat) should be, from the orders, minus what it is. A single statement,
+    // so the orders and the totals are read in the same snapshot. Canceled orders only count in their status
+    private static final String CORRECTIONS = "SELECT id, sum(order_count), sum(amount) FROM ("
+            + "SELECT CONCAT('user:', user_id) AS id, count(*) AS order_count, coalesce(sum(total_amount), 0) AS amount "
+            + "FROM orders WHERE user_id IS NOT NULL AND (status IS NULL OR status <> 'CANCELED') GROUP BY user_id "
+            + "UNION ALL SELECT CONCAT('status:', status), count(*), coalesce(sum(total_amount), 0) FROM orders "
+            + "WHERE status IS NOT NULL GROUP BY status "
+            + "UNION ALL SELECT CONCAT('day:', CAST(order_date AS DATE)), count(*), coalesce(sum(total_amount), 0) "
+            + "FROM orders WHERE order_date IS NOT NULL AND (status IS NULL OR status <> 'CANCELED') "
+            + "GROUP BY CAST(order_date AS DATE) "
+            + "UNION ALL SELECT id, -order_count, -amount FROM order_stat"
+            + ") totals GROUP BY id HAVING sum(order_count) <> 0 OR sum(amount) <> 0";
+
+    private static final int REBUILD_ROW = 1;
+    private static final String CLAIM_REBUILD = "UPDATE order_stat_rebuild SET rebuilt_at = ? WHERE id = ? AND rebuilt_at <= ?";
+    private static final String FIRST_REBUILD_POSTGRESQL = "INSERT INTO order_stat_rebuild (id, rebuilt_at) VALUES (?, ?) "
+            + "ON CONFLICT (id) DO NOTHING";
+    private static final String FIRST_REBUILD_STANDARD = "MERGE INTO order_stat_rebuild r USING (VALUES (CAST(? AS INT))) "
+            + "AS d (id) ON r.id = d.id WHEN NOT MATCHED THEN INSERT (id, rebuilt_at) VALUES (d.id, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean postgresql;
+
+    public OrderStatBulkRepository(DataSource dataSource) throws MetaDataAccessException {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.postgresql = "PostgreSQL".equals(
+                JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
+    }
+
+    // One JDBC batch; rows are taken in id order so concurrent transactions never wait on each other in a cycle
+    public void add(SortedMap<String, Increment> increments) {
+        if (increments.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(increments.size());
+        increments.forEach((id, increment) -> rows.add(new Object[]{id, increment.orderCount(), increment.amount()}));
+        jdbcTemplate.batchUpdate(postgresql ? UPSERT_POSTGRESQL : UPSERT_STANDARD, rows);
+    }
+
+    // First step of a rebuild, inside its transaction: false if another instance rebuilt after rebuiltBefore.
+    // The claimed row stays locked until the rebuild commits, so rebuilds of several instances never overlap
+    // (a second one waits, then sees the first one's time)
+    public boolean claimRebuild(Instant now, Instant rebuiltBefore) {
+        if (jdbcTemplate.update(CLAIM_REBUILD, Timestamp.from(now), REBUILD_ROW, Timestamp.from(rebuiltBefore)) == 1) {
+            return true;
+        }
+        return jdbcTemplate.update(postgresql ? FIRST_REBUILD_POSTGRESQL : FIRST_REBUILD_STANDARD,
+                REBUILD_ROW, Timestamp.from(now)) == 1;
+    }
+
+    // Applied with add, they only take the row locks of the totals that drifted, for the rest of the rebuild
+    public SortedMap<String, Increment> corrections() {
+        SortedMap<String, Increment> corrections = new TreeMap<>();
+        jdbcTemplate.query(CORRECTIONS, (RowCallbackHandler) rs ->
+                corrections.put(rs.getString(1), new Increment(rs.getLong(2), rs.getDouble(3))));
+        return corrections;
+    }
+
+    // Totals no order counts in any more (a day whose orders were all canceled...)
+    public void deleteEmpty() {
+        jdbcTemplate.update("DELETE FROM order_stat WHERE order_count = 0");
+    }
+}
@@ -0,0 +1,7 @@
+package com.tp.orderservice.repository;
+
+import com.tp.orderservice.entities.OrderStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface OrderStatRepository extends JpaRepository<OrderStat, String> {
+}
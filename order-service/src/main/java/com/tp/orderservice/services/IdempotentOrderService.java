@@ -0,0 +1,272 @@
+package com.tp.orderservice.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tp.orderservice.entities.IdempotencyRecord;
+import com.tp.orderservice.entities.Order;
+import com.tp.orderservice.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// POST /api/orders with an Idempotency-Key header: the first request with a key creates the order, retries with
+// the same key get that order back without running createOrder again. Asynchronous submissions (?async=true) work
+// the same way, with their PENDING order as the result. The key is stored with the order's JSON in the same
+// transaction as the order, so a key is remembered exactly when its order exists; a failed attempt leaves
+// nothing behind and may be retried. Stored results are read through a near-cache (cache.* metrics,
+// cache=idempotency-keys); replays are counted in orders.idempotency.replays.
+// Duplicates arriving while the first attempt still runs in this instance wait for it. Across instances the
+// primary key decides: the attempt that loses rolls back and answers with the winner's order.
+@Service
+public class IdempotentOrderService {
+    private static final Logger log = LoggerFactory.getLogger(IdempotentOrderService.class);
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final OrderService orderService;
+    private final OrderSubmissionService orderSubmissionService;
+    private final IdempotencyRecordRepository records;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, IdempotencyRecord> results;
+    // Attempts running in this instance, by record id; completed (never exceptionally) when they end
+    private final ConcurrentMap<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final Counter replays;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Duration cleanupInterval;
+    private final int cleanupBatchSize;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("idempotency-cleanup").daemon().factory());
+
+    public IdempotentOrderService(OrderService orderService, OrderSubmissionService orderSubmissionService,
+                                  IdempotencyRecordRepository records,
+                                  TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.orders.idempotency.ttl:24h}") Duration ttl,
+                                  @Value("${app.orders.idempotency.wait-timeout:10s}") Duration waitTimeout,
+                                  @Value("${app.orders.idempotency.cache.max-size:10000}") long cacheMaxSize,
+                                  @Value("${app.orders.idempotency.cache.ttl:10m}") Duration cacheTtl,
+                                  @Value("${app.orders.idempotency.cleanup.interval:10m}") Duration cleanupInterval,
+                                  @Value("${app.orders.idempotency.cleanup.batch-size:500}") int cleanupBatchSize) {
+        this.orderService = orderService;
+        this.orderSubmissionService = orderSubmissionService;
+        this.records = records;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.results = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl.compareTo(ttl) < 0 ? cacheTtl : ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "idempotency-keys");
+        this.replays = Counter.builder("orders.idempotency.replays")
+                .description("Order creations answered from a stored Idempotency-Key result")
+                .register(meterRegistry);
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.cleanupInterval = cleanupInterval;
+        this.cleanupBatchSize = cleanupBatchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::deleteExpired,
+                cleanupInterval.toMillis(), cleanupInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public Order createOrder(String key, Order order, Authentication authentication) {
+        return once(key, order, authentication, () -> orderService.createOrder(order, authentication));
+    }
+
+    // The submission's worker only starts once its order and key are committed
+    public Order submitOrder(String key, Order order, Authentication authentication) {
+        return once(key, order, authentication, () -> orderSubmissionService.submit(order, authentication));
+    }
+
+    private Order once(String key, Order order, Authentication authentication, Supplier<Order> creation) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    IDEMPOTENCY_KEY + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String id = recordId(OrderService.getUserId(authentication), key);
+        // Taken before createOrder fills in the order
+        String requestHash = sha256(toJson(order));
+        while (true) {
+            IdempotencyRecord stored = find(id);
+            if (stored != null) {
+                return replay(stored, requestHash);
+            }
+            CompletableFuture<Void> attempt = new CompletableFuture<>();
+            CompletableFuture<Void> running = inFlight.putIfAbsent(id, attempt);
+            if (running == null) {
+                try {
+                    // An attempt may have finished between the lookup above and taking its place
+                    stored = find(id);
+                    return stored != null ? replay(stored, requestHash) : create(id, requestHash, creation);
+                } finally {
+                    inFlight.remove(id, attempt);
+                    attempt.complete(null);
+                }
+            }
+            // Once it ends its result is stored, or it failed and this request takes its turn
+            await(running);
+        }
+    }
+
+    // Deletes expired keys, cleanup.batch-size per transaction
+    public int deleteExpired() {
+        int total = 0;
+        try {
+            Integer deleted;
+            do {
+                deleted = transactionTemplate.execute(status -> {
+                    List<String> expired = records.findExpiredIds(Instant.now(), Limit.of(cleanupBatchSize));
+                    records.deleteAllByIdInBatch(expired);
+                    return expired.size();
+                });
+                total += deleted;
+            } while (deleted == cleanupBatchSize);
+            log.debug("Deleted {} expired idempotency keys", total);
+        } catch (RuntimeException e) {
+            log.warn("Idempotency key cleanup failed after {} keys: {}", total, e.getMessage());
+        }
+        return total;
+    }
+
+    private Order create(String id, String requestHash, Supplier<Order> creation) {
+        IdempotencyRecord record;
+        try {
+            record = transactionTemplate.execute(status -> {
+                Order saved = creation.get();
+                Instant now = Instant.now();
+                IdempotencyRecord created = IdempotencyRecord.builder()
+                        .id(id)
+                        .requestHash(requestHash)
+                        .orderId(saved.getId())
+                        .response(toJson(saved))
+                        .createdAt(now)
+                        .expiresAt(now.plus(ttl))
+                        .build();
+                // An expired record for the same key that cleanup has not reached yet is taken over in place;
+                // otherwise the insert fails on the primary key if another attempt stored the key first
+                if (records.replaceExpired(created, now) == 0) {
+                    records.saveAndFlush(created);
+                }
+                return created;
+            });
+        } catch (DataIntegrityViolationException e) {
+            IdempotencyRecord stored = find(id);
+            if (stored == null) {
+                throw e;
+            }
+            log.info("Idempotency key already used by a concurrent request, returning order {}", stored.getOrderId());
+            return replay(stored, requestHash);
+        }
+        results.put(id, record);
+        return fromJson(record.getResponse());
+    }
+
+    // Keys are only unique per caller
+    static String recordId(String userId, String key) {
+        return sha256(userId + "\n" + key);
+    }
+
+    private IdempotencyRecord find(String id) {
+        IdempotencyRecord cached = results.getIfPresent(id);
+        if (cached != null && cached.getExpiresAt().isAfter(Instant.now())) {
+            return cached;
+        }
+        IdempotencyRecord stored = records.findById(id)
+                .filter(record -> record.getExpiresAt().isAfter(Instant.now()))
+                .orElse(null);
+        if (stored != null) {
+            results.put(id, stored);
+        }
+        return stored;
+    }
+
+    private Order replay(IdempotencyRecord stored, String requestHash) {
+        if (!stored.getRequestHash().equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    IDEMPOTENCY_KEY + " was already used for a different order");
+        }
+        replays.increment();
+        return fromJson(stored.getResponse());
+    }
+
+    private void await(CompletableFuture<Void> running) {
+        try {
+            running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A request with this " + IDEMPOTENCY_KEY + " is still being processed, retry later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(Order order) {
+        try {
+            return objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Order not serializable", e);
+        }
+    }
+
+    private Order fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, Order.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable stored order", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,64 +1,210 @@
 package com.tp.orderservice.services;
 
-import com.tp.orderservice.clients.ProductRestClient;
+import com.tp.common.events.Outbox;
+import com.tp.common.security.Roles;
+import com.tp.orderservice.clients.ProductReservationClient;
 import com.tp.orderservice.entities.Order;
 import com.tp.orderservice.entities.OrderItem;
+import com.tp.orderservice.enums.OrderStatus;
+import com.tp.orderservice.model.OrderSubmission;
+import com.tp.orderservice.model.OrderWindow;
 import com.tp.orderservice.model.Product;
+import com.tp.orderservice.model.ReservedItem;
+import com.tp.orderservice.model.StockReservation;
 import com.tp.orderservice.repository.OrderRepository;
+import com.tp.orderservice.services.OrderStatsService.Contribution;
+import feign.FeignException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @Transactional
 public class OrderService {
+    private static final Logger log = LoggerFactory.getLogger(OrderService.class);
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("orderDate"), Sort.Order.desc("id"));
+    public static final String ORDER = "Order";
+    public static final String ORDER_CREATED = "OrderCreated";
+    public static final String ORDER_UPDATED = "OrderUpdated";
+    public static final String ORDER_DELETED = "OrderDeleted";
+
     private final OrderRepository orderRepository;
-    private final ProductRestClient productRestClient;
+    private final ProductLookupService productLookupService;
+    private final ProductReservationClient reservationClient;
+    private final ProductServiceGuard productServiceGuard;
+    private final Outbox outbox;
+    private final OrderStatsService orderStats;
 
-    public OrderService(OrderRepository orderRepository, ProductRestClient productRestClient) {
+    public OrderService(OrderRepository orderRepository, ProductLookupService productLookupService,
+                        ProductReservationClient reservationClient, ProductServiceGuard productServiceGuard, Outbox outbox,
+                        OrderStatsService orderStats) {
         this.orderRepository = orderRepository;
-        this.productRestClient = productRestClient;
+        this.productLookupService = productLookupService;
+        this.reservationClient = reservationClient;
+        this.productServiceGuard = productServiceGuard;
+        this.outbox = outbox;
+        this.orderStats = orderStats;
     }
 
-    public Order getOrderById(Long id, Authentication authentication) {
-        Order order = orderRepository.findById(id).orElse(null);
+    public Order getOrderById(Long id, boolean liveProducts, Authentication authentication) {
+        Order order = orderRepository.findWithItemsById(id).orElse(null);
         if (order == null) {
             return null;
         }
         if (!isAdmin(authentication) && !order.getUserId().equals(getUserId(authentication))) {
             throw new AccessDeniedException("Not allowed to view this order");
         }
-        enrichProducts(List.of(order));
+        if (liveProducts) {
+            enrichProducts(List.of(order));
+        }
         return order;
     }
 
     public Order createOrder(Order order, Authentication authentication) {
+        return createOrders(List.of(order), authentication).get(0);
+    }
+
+    // All orders are written in one transaction: one product lookup for every line, one stock reservation call
+    // for every order, then the order and item inserts go out in JDBC batches (hibernate.jdbc.batch_size).
+    // If any order fails, none is created and the stock reservations are given back.
+    public List<Order> createOrders(List<Order> orders, Authentication authentication) {
+        String userId = getUserId(authentication);
+        Set<Long> productIds = productIds(orders);
+        Map<Long, Product> products = productIds.isEmpty() ? Map.of() : productLookupService.getProducts(productIds);
+        orders.forEach(order -> prepareOrder(order, userId, products));
+        reserveStock(orders);
+
+        // Events are recorded in this transaction (payload: the order with its items, or its id on delete)
+        List<Order> saved = orderRepository.saveAll(orders);
+        saved.forEach(order -> outbox.record(ORDER, order.getId(), ORDER_CREATED, order));
+        orderStats.recordCreated(saved);
+        return saved;
+    }
+
+    // Asynchronous submission, first step: only the order itself is stored, as PENDING. Its lines are priced,
+    // reserved and stored by processPendingOrder, since item snapshots are written once, when the item is inserted
+    public Order acceptOrder(Order order, Authentication authentication) {
+        order.setId(null);
+        order.setOrderDate(LocalDateTime.now());
+        order.setUserId(getUserId(authentication));
+        order.setStatus(OrderStatus.PENDING);
+        order.setOrderItems(null);
+        order.setTotalAmount(null);
+        order.setReservationId(null);
+        order.setFailureReason(null);
+        Order saved = orderRepository.save(order);
+        outbox.record(ORDER, saved.getId(), ORDER_CREATED, saved);
+        orderStats.recordCreated(List.of(saved));
+        return saved;
+    }
+
+    // Second step, on a submission worker: the same pricing and stock reservation as createOrder, then CONFIRMED.
+    // The order is claimed first, with a conditional update: one no longer PENDING (deleted, or given up on by
+    // cancelStalePendingOrders) is left alone, and the sweep cannot cancel it while it is being processed.
+    // A failure rolls the claim back with everything else, and the order is PENDING again
+    public Order processPendingOrder(Long id, List<OrderItem> items) {
+        Order order = orderRepository.findById(id).orElse(null);
+        if (order == null || order.getStatus() != OrderStatus.PENDING) {
+            return order;
+        }
+        Contribution before = Contribution.of(order);
+        if (orderRepository.transition(id, OrderStatus.PENDING, OrderStatus.CONFIRMED) == 0) {
+            log.info("Order {} stopped being PENDING before it was processed", id);
+            return order;
+        }
+        order.setStatus(OrderStatus.CONFIRMED);
+        order.setOrderItems(items);
+        Set<Long> productIds = productIds(List.of(order));
+        prepareOrder(order, order.getUserId(),
+                productIds.isEmpty() ? Map.of() : productLookupService.getProducts(productIds));
+        reserveStock(List.of(order));
+        Order saved = orderRepository.save(order);
+        outbox.record(ORDER, id, ORDER_UPDATED, saved);
+        orderStats.recordChange(before, Contribution.of(saved));
+        return saved;
+    }
+
+    // Conditional like processPendingOrder: an order a worker claimed or finished is not canceled.
+    // Returns whether this call canceled it
+    public boolean cancelPendingOrder(Long id, String reason) {
+        Order order = orderRepository.findById(id).orElse(null);
+        if (order == null || order.getStatus() != OrderStatus.PENDING
+                || orderRepository.transition(id, OrderStatus.PENDING, OrderStatus.CANCELED) == 0) {
+            return false;
+        }
+        Contribution before = Contribution.of(order);
+        order.setStatus(OrderStatus.CANCELED);
+        order.setFailureReason(reason);
+        Order saved = orderRepository.save(order);
+        outbox.record(ORDER, id, ORDER_UPDATED, saved);
+        orderStats.recordChange(before, Contribution.of(saved));
+        return true;
+    }
+
+    // PENDING orders whose work was lost (instance stopped before processing them) are canceled once they are
+    // older than any processing could take
+    public int cancelStalePendingOrders(Duration olderThan) {
+        List<Order> stale = orderRepository.findByStatusAndOrderDateBefore(OrderStatus.PENDING,
+                LocalDateTime.now().minus(olderThan));
+        return (int) stale.stream()
+                .filter(order -> cancelPendingOrder(order.getId(), "Not processed in time, please submit it again"))
+                .count();
+    }
+
+    @Transactional(readOnly = true)
+    public OrderSubmission getOrderSubmission(Long id, Authentication authentication) {
+        Order order = orderRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No order " + id));
+        if (!isAdmin(authentication) && !order.getUserId().equals(getUserId(authentication))) {
+            throw new AccessDeniedException("Not allowed to view this order");
+        }
+        return OrderSubmission.of(order);
+    }
+
+    private void prepareOrder(Order order, String userId, Map<Long, Product> products) {
         if (order.getOrderDate() == null) {
             order.setOrderDate(LocalDateTime.now());
         }
-        order.setUserId(getUserId(authentication));
+        order.setUserId(userId);
 
         double total = 0.0;
 
-        if (order.getOrderItems() != null) {
+        if (order.getOrderItems() != null && !order.getOrderItems().isEmpty()) {
             for (OrderItem item : order.getOrderItems()) {
-                Product product = productRestClient.getProductById(item.getProductId());
+                Product product = products.get(item.getProductId());
                 if (product == null) {
                     throw new RuntimeException("Product not found with ID: " + item.getProductId());
                 }
-                if (product.getStockQuantity() < item.getQuantity()) {
-                    throw new RuntimeException("Insufficient stock for product: " + product.getName());
-                }
 
-                // Update item price from product service source of truth
+                // Snapshot taken from product service source of truth; reads never go back to it
                 item.setPrice(product.getPrice());
-                item.setProduct(product); // Set for response
+                item.setProductName(product.getName());
 
                 total += item.getPrice() * item.getQuantity();
                 item.setOrder(order);
@@ -66,54 +212,173 @@ public class OrderService {
         }
 
         order.setTotalAmount(total);
-
-        return orderRepository.save(order);
     }
 
     public Order updateOrder(Long id, Order orderDetails) {
         Order order = orderRepository.findById(id).orElse(null);
         if (order != null) {
+            Contribution before = Contribution.of(order);
+            if (orderDetails.getStatus() == OrderStatus.CANCELED && order.getStatus() != OrderStatus.CANCELED
+                    && order.getReservationId() != null) {
+                String reservationId = order.getReservationId();
+                afterCompletion(committed -> {
+                    if (committed) {
+                        productServiceGuard.call(() -> reservationClient.cancelReservation(reservationId));
+                    }
+                });
+            }
             order.setStatus(orderDetails.getStatus());
             order.setTotalAmount(orderDetails.getTotalAmount());
-            return orderRepository.save(order);
+            Order saved = orderRepository.save(order);
+            outbox.record(ORDER, id, ORDER_UPDATED, saved);
+            orderStats.recordChange(before, Contribution.of(saved));
+            return saved;
         }
         return null;
     }
 
+    // Deleting an order that does not exist (any more) does nothing, and announces nothing
     public void deleteOrderById(Long id) {
-        orderRepository.deleteById(id);
+        orderRepository.findById(id).ifPresent(order -> {
+            orderStats.recordChange(Contribution.of(order), null);
+            orderRepository.delete(order);
+            outbox.record(ORDER, id, ORDER_DELETED, Map.of("id", id));
+        });
     }
 
-    public List<Order> getAllOrders(Authentication authentication) {
+    public List<Order> getAllOrders(boolean liveProducts, Authentication authentication) {
         List<Order> orders = isAdmin(authentication)
                 ? orderRepository.findAll()
                 : orderRepository.findByUserId(getUserId(authentication));
-        enrichProducts(orders);
+        if (liveProducts) {
+            enrichProducts(orders);
+        }
+        return orders;
+    }
+
+    // Stock is taken in product-service for all the orders with items in one call, one reservation each; they
+    // are confirmed together if this transaction commits and given back together if it rolls back
+    private void reserveStock(List<Order> orders) {
+        List<Order> withItems = orders.stream()
+                .filter(order -> order.getOrderItems() != null && !order.getOrderItems().isEmpty())
+                .toList();
+        if (withItems.isEmpty()) {
+            return;
+        }
+        List<StockReservation> requested = withItems.stream()
+                .map(order -> new StockReservation(null, null, order.getOrderItems().stream()
+                        .map(item -> new ReservedItem(item.getProductId(), item.getQuantity()))
+                        .toList()))
+                .toList();
+        List<StockReservation> reservations;
+        try {
+            reservations = productServiceGuard.call(() -> reservationClient.reserveAll(requested));
+        } catch (FeignException.Conflict e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Insufficient stock for this order", e);
+        }
+        for (int i = 0; i < withItems.size(); i++) {
+            withItems.get(i).setReservationId(reservations.get(i).getId());
+        }
+        List<String> reservationIds = reservations.stream().map(StockReservation::getId).toList();
+        afterCompletion(committed -> {
+            if (committed) {
+                productServiceGuard.call(() -> reservationClient.confirmAll(reservationIds));
+            } else {
+                productServiceGuard.call(() -> reservationClient.releaseAll(reservationIds));
+            }
+        });
+    }
+
+    // Runs once the surrounding transaction has finished; failures are logged, not propagated,
+    // since the order outcome is already decided at that point
+    private void afterCompletion(Consumer<Boolean> action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    action.accept(status == STATUS_COMMITTED);
+                } catch (Exception e) {
+                    log.warn("Stock reservation follow-up failed: {}", e.getMessage());
+                }
+            }
+        });
+    }
+
+    public Page<Order> getOrdersPage(int page, int size, boolean liveProducts, Authentication authentication) {
+        PageRequest pageRequest = PageRequest.of(page, size, NEWEST_FIRST);
+        Page<Order> orders = isAdmin(authentication)
+                ? orderRepository.findAll(pageRequest)
+                : orderRepository.findByUserId(getUserId(authentication), pageRequest);
+        if (liveProducts) {
+            enrichProducts(orders.getContent());
+        }
         return orders;
     }
 
+    public OrderWindow scrollOrders(String cursor, int size, boolean liveProducts, Authentication authentication) {
+        ScrollPosition position = decodeCursor(cursor);
+        Window<Order> window = isAdmin(authentication)
+                ? orderRepository.findAllByOrderByOrderDateDescIdDesc(position, Limit.of(size))
+                : orderRepository.findByUserIdOrderByOrderDateDescIdDesc(getUserId(authentication), position, Limit.of(size));
+        List<Order> orders = window.getContent();
+        if (liveProducts) {
+            enrichProducts(orders);
+        }
+        String nextCursor = window.hasNext() && !orders.isEmpty() ? encodeCursor(orders.get(orders.size() - 1)) : null;
+        return new OrderWindow(orders, nextCursor);
+    }
+
+    // Cursor is an opaque "orderDate|id" of the last order returned, base64url encoded
+    private static String encodeCursor(Order last) {
+        String raw = last.getOrderDate() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ScrollPosition decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put("orderDate", LocalDateTime.parse(raw.substring(0, separator)));
+            keys.put("id", Long.valueOf(raw.substring(separator + 1)));
+            return ScrollPosition.forward(keys);
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor, e);
+        }
+    }
+
+    // Live product details are decoration on top of the stored snapshot: when product-service is down
+    // the orders are still returned, with last-known snapshots where there are any
     private void enrichProducts(List<Order> orders) {
+        Map<Long, Product> products = productLookupService.getProductsOrStale(productIds(orders));
         orders.forEach(order -> {
             if (order.getOrderItems() != null) {
-                order.getOrderItems().forEach(item -> {
-                    try {
-                        Product product = productRestClient.getProductById(item.getProductId());
-                        item.setProduct(product);
-                    } catch (Exception e) {
-                        // Ignore
-                    }
-                });
+                order.getOrderItems().forEach(item -> item.setProduct(products.get(item.getProductId())));
             }
         });
     }
 
+    private Set<Long> productIds(List<Order> orders) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Order order : orders) {
+            if (order.getOrderItems() != null) {
+                order.getOrderItems().stream()
+                        .map(OrderItem::getProductId)
+                        .filter(Objects::nonNull)
+                        .forEach(ids::add);
+            }
+        }
+        return ids;
+    }
+
     private boolean isAdmin(Authentication authentication) {
-        return authentication != null && authentication.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .anyMatch(auth -> auth.equals("ROLE_ADMIN"));
+        return Roles.hasRole(authentication, "ADMIN");
     }
 
-    private String getUserId(Authentication authentication) {
+    static String getUserId(Authentication authentication) {
         if (authentication instanceof JwtAuthenticationToken jwtAuth) {
             Object preferred = jwtAuth.getToken().getClaims().get("preferred_username");
             if (preferred != null) {
@@ -0,0 +1,226 @@
+package com.tp.orderservice.services;
+
+import com.tp.common.security.Roles;
+import com.tp.orderservice.entities.Order;
+import com.tp.orderservice.entities.OrderStat;
+import com.tp.orderservice.enums.OrderStatus;
+import com.tp.orderservice.model.OrderStats;
+import com.tp.orderservice.model.OrderStats.DayTotals;
+import com.tp.orderservice.model.OrderStats.Totals;
+import com.tp.orderservice.repository.OrderRepository;
+import com.tp.orderservice.repository.OrderStatBulkRepository;
+import com.tp.orderservice.repository.OrderStatBulkRepository.Increment;
+import com.tp.orderservice.repository.OrderStatRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Running order totals, so dashboards read a handful of rows instead of summing every order: per user (order
+// count and spend), per status and per day of orderDate (orders and amount). Canceled orders only count in
+// their status. OrderService records every change in the transaction that makes it; a rebuild recomputes all
+// totals from the orders table and corrects the ones that drifted (amounts are doubles), on first start and
+// once every rebuild-interval across all instances.
+@Service
+public class OrderStatsService {
+    private static final Logger log = LoggerFactory.getLogger(OrderStatsService.class);
+    private static final String USER = "user:";
+    private static final String STATUS = "status:";
+    private static final String DAY = "day:";
+    private static final int DEFAULT_DAYS = 30;
+    private static final int MAX_DAYS = 366;
+
+    // What one order adds to the totals; taken before an order is changed, to take it off again
+    public record Contribution(String userId, OrderStatus status, LocalDate day, double amount) {
+
+        public static Contribution of(Order order) {
+            return new Contribution(order.getUserId(), order.getStatus(),
+                    order.getOrderDate() != null ? order.getOrderDate().toLocalDate() : null,
+                    order.getTotalAmount() != null ? order.getTotalAmount() : 0.0);
+        }
+    }
+
+    private final OrderStatRepository orderStatRepository;
+    private final OrderStatBulkRepository bulkRepository;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration rebuildInterval;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("order-stats-rebuild").daemon().factory());
+
+    public OrderStatsService(OrderStatRepository orderStatRepository, OrderStatBulkRepository bulkRepository,
+                             OrderRepository orderRepository, TransactionTemplate transactionTemplate,
+                             @Value("${app.orders.stats.rebuild-interval:24h}") Duration rebuildInterval) {
+        this.orderStatRepository = orderStatRepository;
+        this.bulkRepository = bulkRepository;
+        this.orderRepository = orderRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // Orders placed before the totals existed
+        scheduler.schedule(() -> {
+            if (orderStatRepository.count() == 0 && orderRepository.count() > 0) {
+                rebuildQuietly(Instant.now());
+            }
+        }, 0, TimeUnit.MILLISECONDS);
+        // Every instance checks; only the first one due rebuilds
+        scheduler.scheduleWithFixedDelay(() -> rebuildQuietly(Instant.now().minus(rebuildInterval)),
+                rebuildInterval.toMillis(), rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Collection<Order> orders) {
+        SortedMap<String, Increment> increments = new TreeMap<>();
+        orders.forEach(order -> add(increments, Contribution.of(order), 1));
+        bulkRepository.add(increments);
+    }
+
+    // before is null for a new order, after for a deleted one
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordChange(Contribution before, Contribution after) {
+        SortedMap<String, Increment> increments = new TreeMap<>();
+        if (before != null) {
+            add(increments, before, -1);
+        }
+        if (after != null) {
+            add(increments, after, 1);
+        }
+        increments.values().removeIf(increment -> increment.orderCount() == 0 && increment.amount() == 0);
+        bulkRepository.add(increments);
+    }
+
+    // Users see their own totals; admins may ask for any user's and also get the totals per status and per day
+    // (from..to, by default the last 30 days)
+    @Transactional(readOnly = true)
+    public OrderStats getStats(String userId, LocalDate from, LocalDate to, Authentication authentication) {
+        String callerId = OrderService.getUserId(authentication);
+        boolean admin = Roles.hasRole(authentication, "ADMIN");
+        if (userId != null && !userId.equals(callerId) && !admin) {
+            throw new AccessDeniedException("Not allowed to view another user's stats");
+        }
+        String statsUser = userId != null ? userId : callerId;
+        Totals user = orderStatRepository.findById(USER + statsUser).map(OrderStatsService::totals).orElse(Totals.NONE);
+        if (!admin) {
+            return new OrderStats(statsUser, user, null, null);
+        }
+
+        LocalDate last = to != null ? to : LocalDate.now();
+        LocalDate first = from != null ? from : last.minusDays(DEFAULT_DAYS - 1);
+        long days = ChronoUnit.DAYS.between(first, last) + 1;
+        if (days < 1 || days > MAX_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "from..to must span between 1 and " + MAX_DAYS + " days");
+        }
+
+        Map<OrderStatus, Totals> byStatus = new EnumMap<>(OrderStatus.class);
+        Map<String, OrderStat> statusRows = byId(Arrays.stream(OrderStatus.values()).map(status -> STATUS + status).toList());
+        for (OrderStatus status : OrderStatus.values()) {
+            OrderStat row = statusRows.get(STATUS + status);
+            byStatus.put(status, row != null ? totals(row) : Totals.NONE);
+        }
+
+        List<LocalDate> dates = first.datesUntil(last.plusDays(1)).toList();
+        Map<String, OrderStat> dayRows = byId(dates.stream().map(day -> DAY + day).toList());
+        List<DayTotals> byDay = dates.stream().map(day -> {
+            OrderStat row = dayRows.get(DAY + day);
+            return row != null ? new DayTotals(day, row.getOrderCount(), row.getAmount()) : new DayTotals(day, 0, 0);
+        }).toList();
+        return new OrderStats(statsUser, user, byStatus, byDay);
+    }
+
+    // Returns the number of totals corrected
+    public int rebuild() {
+        Integer corrected = rebuild(Instant.now());
+        return corrected == null ? 0 : corrected;
+    }
+
+    // Null when another instance rebuilt after rebuiltBefore. Orders keep changing meanwhile: the corrections
+    // are increments too, so the changes committed after they were computed are kept
+    Integer rebuild(Instant rebuiltBefore) {
+        Integer corrected = transactionTemplate.execute(status -> {
+            if (!bulkRepository.claimRebuild(Instant.now(), rebuiltBefore)) {
+                return null;
+            }
+            SortedMap<String, Increment> corrections = bulkRepository.corrections();
+            bulkRepository.add(corrections);
+            bulkRepository.deleteEmpty();
+            return corrections.size();
+        });
+        if (corrected != null) {
+            log.info("Rebuilt order stats ({} totals corrected)", corrected);
+        }
+        return corrected;
+    }
+
+    private void rebuildQuietly(Instant rebuiltBefore) {
+        try {
+            rebuild(rebuiltBefore);
+        } catch (RuntimeException e) {
+            log.warn("Order stats rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    private static void add(Map<String, Increment> increments, Contribution contribution, int sign) {
+        Increment increment = new Increment(sign, sign * contribution.amount());
+        if (contribution.status() != null) {
+            increments.merge(STATUS + contribution.status(), increment, OrderStatsService::sum);
+        }
+        if (contribution.status() == OrderStatus.CANCELED) {
+            return;
+        }
+        if (contribution.userId() != null) {
+            increments.merge(USER + contribution.userId(), increment, OrderStatsService::sum);
+        }
+        if (contribution.day() != null) {
+            increments.merge(DAY + contribution.day(), increment, OrderStatsService::sum);
+        }
+    }
+
+    private static Increment sum(Increment a, Increment b) {
+        return new Increment(a.orderCount() + b.orderCount(), a.amount() + b.amount());
+    }
+
+    private Map<String, OrderStat> byId(List<String> ids) {
+        return orderStatRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(OrderStat::getId, Function.identity()));
+    }
+
+    private static Totals totals(OrderStat row) {
+        return new Totals(row.getOrderCount(), row.getAmount());
+    }
+}
@@ -0,0 +1,158 @@
+package com.tp.orderservice.services;
+
+import com.tp.orderservice.entities.Order;
+import com.tp.orderservice.entities.OrderItem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Asynchronous order submission (POST /api/orders?async=true): the order is stored as PENDING and answered
+// right away, then a fixed pool of workers prices it, reserves its stock and confirms or cancels it, so request
+// threads never wait on product-service. At most queue-capacity orders wait for a worker; further submissions
+// are refused with 503 and Retry-After instead of piling up.
+// Metrics: executor.queued / executor.active / executor.completed (name=order-submissions), orders.async.rejected.
+@Service
+public class OrderSubmissionService {
+    private static final Logger log = LoggerFactory.getLogger(OrderSubmissionService.class);
+    private static final Duration SWEEP_INTERVAL = Duration.ofMinutes(1);
+
+    private final OrderService orderService;
+    private final ThreadPoolExecutor workers;
+    // One permit per order in a worker or in the queue, taken before anything is stored
+    private final Semaphore slots;
+    private final Counter rejected;
+    private final Duration pendingTimeout;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("pending-order-sweeper").daemon().factory());
+
+    public OrderSubmissionService(OrderService orderService, MeterRegistry meterRegistry,
+                                  @Value("${app.orders.async.workers:8}") int workerCount,
+                                  @Value("${app.orders.async.queue-capacity:200}") int queueCapacity,
+                                  @Value("${app.orders.async.pending-timeout:5m}") Duration pendingTimeout) {
+        this.orderService = orderService;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), Thread.ofPlatform().name("order-submission-", 0).factory());
+        this.slots = new Semaphore(workerCount + queueCapacity);
+        this.pendingTimeout = pendingTimeout;
+        new ExecutorServiceMetrics(workers, "order-submissions", List.of()).bindTo(meterRegistry);
+        this.rejected = Counter.builder("orders.async.rejected")
+                .description("Asynchronous order submissions refused because the queue was full")
+                .register(meterRegistry);
+    }
+
+    public Order submit(Order order, Authentication authentication) {
+        if (!slots.tryAcquire()) {
+            rejected.increment();
+            throw new SubmissionQueueFullException();
+        }
+        try {
+            List<OrderItem> items = order.getOrderItems() != null ? new ArrayList<>(order.getOrderItems()) : List.of();
+            Order accepted = orderService.acceptOrder(order, authentication);
+            // Runs with the caller's security context so product-service calls still carry its token
+            Runnable work = DelegatingSecurityContextRunnable.create(
+                    () -> process(accepted.getId(), items), SecurityContextHolder.getContext());
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                // Submitted inside the caller's transaction (IdempotentOrderService): the worker must not look for
+                // the order before it is committed, and an order rolled back gives its slot back
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status == STATUS_COMMITTED) {
+                            workers.execute(work);
+                        } else {
+                            slots.release();
+                        }
+                    }
+                });
+            } else {
+                workers.execute(work);
+            }
+            return accepted;
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        sweeper.scheduleWithFixedDelay(this::cancelStalePendingOrders,
+                SWEEP_INTERVAL.toMillis(), SWEEP_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Orders already queued are still processed, within a grace period
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        sweeper.shutdownNow();
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("{} submitted orders left PENDING at shutdown", workers.shutdownNow().size());
+        }
+    }
+
+    private void process(Long id, List<OrderItem> items) {
+        try {
+            orderService.processPendingOrder(id, items);
+        } catch (RuntimeException e) {
+            String reason = e instanceof ResponseStatusException status && status.getReason() != null
+                    ? status.getReason() : e.getMessage();
+            log.info("Order {} canceled: {}", id, reason);
+            try {
+                orderService.cancelPendingOrder(id, reason);
+            } catch (RuntimeException cancelFailure) {
+                log.warn("Could not cancel order {}, it stays PENDING until swept: {}", id, cancelFailure.getMessage());
+            }
+        } finally {
+            slots.release();
+        }
+    }
+
+    private void cancelStalePendingOrders() {
+        try {
+            int canceled = orderService.cancelStalePendingOrders(pendingTimeout);
+            if (canceled > 0) {
+                log.warn("Canceled {} orders left PENDING for over {}", canceled, pendingTimeout);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Pending order sweep failed: {}", e.getMessage());
+        }
+    }
+
+    public static class SubmissionQueueFullException extends ResponseStatusException {
+        public SubmissionQueueFullException() {
+            super(HttpStatus.SERVICE_UNAVAILABLE, "Too many orders waiting to be processed, retry shortly");
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, "1");
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.tp.orderservice.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tp.orderservice.model.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// Near-cache of product snapshots in front of product-service. Entries expire after the TTL, are replaced by
+// newer snapshots product-service pushes, and are dropped when it reports a delete. Hit/miss/eviction counts are
+// published as cache.* metrics under the name "product-snapshots".
+// A last-known copy of every snapshot is kept for stale-retention, past the TTL but not past a delete or an
+// explicit invalidation. It is only read while product-service is unavailable (see
+// ProductLookupService.getProductsOrStale).
+@Component
+public class ProductCache {
+    private final Cache<Long, Product> cache;
+    private final Cache<Long, Product> lastKnown;
+
+    public ProductCache(MeterRegistry meterRegistry,
+                        @Value("${app.products.cache.max-size:10000}") long maxSize,
+                        @Value("${app.products.cache.ttl:60s}") Duration ttl,
+                        @Value("${app.products.cache.stale-retention:1h}") Duration staleRetention) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.lastKnown = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(staleRetention)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "product-snapshots");
+    }
+
+    public Map<Long, Product> getAllPresent(Collection<Long> ids) {
+        return cache.getAllPresent(ids);
+    }
+
+    public Map<Long, Product> getAllPresentOrStale(Collection<Long> ids) {
+        Map<Long, Product> products = new HashMap<>(cache.getAllPresent(ids));
+        for (Long id : ids) {
+            if (!products.containsKey(id)) {
+                Product stale = lastKnown.getIfPresent(id);
+                if (stale != null) {
+                    products.put(id, stale.staleCopy());
+                }
+            }
+        }
+        return products;
+    }
+
+    public void putAll(Collection<Product> products) {
+        Map<Long, Product> byId = new HashMap<>();
+        products.forEach(product -> byId.put(product.getId(), product));
+        cache.putAll(byId);
+        lastKnown.putAll(byId);
+    }
+
+    // Snapshot pushed by product-service; an older version never replaces a newer one (events may be redelivered)
+    public void refresh(Product product) {
+        cache.asMap().merge(product.getId(), product, ProductCache::newest);
+        lastKnown.asMap().merge(product.getId(), product, ProductCache::newest);
+    }
+
+    public void invalidate(Long productId) {
+        cache.invalidate(productId);
+        lastKnown.invalidate(productId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        lastKnown.invalidateAll();
+    }
+
+    private static Product newest(Product current, Product candidate) {
+        if (current.getVersion() == null || candidate.getVersion() == null) {
+            return candidate;
+        }
+        return candidate.getVersion() >= current.getVersion() ? candidate : current;
+    }
+}
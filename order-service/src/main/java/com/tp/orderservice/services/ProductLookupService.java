@@ -0,0 +1,101 @@
+package com.tp.orderservice.services;
+
+import com.tp.orderservice.clients.ProductRestClient;
+import com.tp.orderservice.model.Product;
+import com.tp.orderservice.services.ProductServiceGuard.ProductServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Resolves product snapshots, from the near-cache when possible. Misses are split into batch-size
+// chunks fetched concurrently from product-service through ProductServiceGuard, within a per-request deadline.
+@Service
+public class ProductLookupService {
+    private static final Logger log = LoggerFactory.getLogger(ProductLookupService.class);
+
+    private final ProductRestClient productRestClient;
+    private final ProductCache productCache;
+    private final ProductServiceGuard productServiceGuard;
+    private final int batchSize;
+    private final Duration timeout;
+    private final Counter fallbacks;
+
+    public ProductLookupService(ProductRestClient productRestClient,
+                                ProductCache productCache,
+                                ProductServiceGuard productServiceGuard,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.products.batch-size:100}") int batchSize,
+                                @Value("${app.products.lookup.timeout:5s}") Duration timeout) {
+        this.productRestClient = productRestClient;
+        this.productCache = productCache;
+        this.productServiceGuard = productServiceGuard;
+        this.batchSize = batchSize;
+        this.timeout = timeout;
+        this.fallbacks = Counter.builder("product.lookup.fallbacks")
+                .description("Product lookups answered from last-known snapshots because product-service failed")
+                .register(meterRegistry);
+    }
+
+    // Current snapshots, or an exception: for callers that must not act on outdated data (pricing an order)
+    public Map<Long, Product> getProducts(Collection<Long> ids) {
+        Map<Long, Product> products = new HashMap<>(productCache.getAllPresent(ids));
+        List<Long> pending = ids.stream()
+                .filter(id -> !products.containsKey(id))
+                .toList();
+        if (pending.isEmpty()) {
+            return products;
+        }
+
+        List<CompletableFuture<List<Product>>> chunks = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<Long> chunk = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            // Each chunk is cached as soon as it arrives, so a later failure does not waste it
+            chunks.add(productServiceGuard.submit(() -> productRestClient.getProductsByIds(chunk))
+                    .thenApply(fetched -> {
+                        productCache.putAll(fetched);
+                        return fetched;
+                    }));
+        }
+        try {
+            CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            throw new ProductServiceUnavailableException("Product lookup did not complete within " + timeout, e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException
+                    : new ProductServiceUnavailableException("Product lookup failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProductServiceUnavailableException("Product lookup interrupted", e);
+        }
+        chunks.forEach(chunk -> chunk.join().forEach(product -> products.put(product.getId(), product)));
+        return products;
+    }
+
+    // For display only: when product-service cannot answer, products seen earlier are returned from the
+    // last-known copies (flagged stale) and the others are left out
+    public Map<Long, Product> getProductsOrStale(Collection<Long> ids) {
+        try {
+            return getProducts(ids);
+        } catch (RuntimeException e) {
+            fallbacks.increment();
+            log.warn("Serving last-known product snapshots, product-service lookup failed: {}", e.getMessage());
+            return productCache.getAllPresentOrStale(ids);
+        }
+    }
+}
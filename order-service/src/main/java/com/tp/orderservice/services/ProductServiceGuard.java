@@ -0,0 +1,149 @@
+package com.tp.orderservice.services;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Every call to product-service goes through here, on the product lookup executor:
+// the bulkhead caps calls in flight, the time limiter bounds each call and the circuit breaker fails fast
+// while product-service keeps failing or answering slowly. All three are the "product-service" instances
+// configured under resilience4j.*; state and rejections are on /actuator/circuitbreakers, /actuator/bulkheads
+// and the resilience4j.* metrics. 4xx answers are ignored by the breaker and reach the caller unchanged.
+@Component
+public class ProductServiceGuard {
+    public static final String INSTANCE = "product-service";
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final TimeLimiter timeLimiter;
+    private final ExecutorService productLookupExecutor;
+    private final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("product-service-timeouts").daemon().factory());
+
+    public ProductServiceGuard(CircuitBreakerRegistry circuitBreakerRegistry,
+                               BulkheadRegistry bulkheadRegistry,
+                               TimeLimiterRegistry timeLimiterRegistry,
+                               @Qualifier("productLookupExecutor") ExecutorService productLookupExecutor) {
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(INSTANCE);
+        this.bulkhead = bulkheadRegistry.bulkhead(INSTANCE);
+        this.timeLimiter = timeLimiterRegistry.timeLimiter(INSTANCE);
+        this.productLookupExecutor = productLookupExecutor;
+    }
+
+    // Failures come back as the Feign exception itself, or ProductServiceUnavailableException when the call
+    // was rejected or timed out
+    public <T> CompletableFuture<T> submit(Callable<T> call) {
+        // Outermost, so rejected calls are not counted as product-service failures. The permit is given back when
+        // the call itself ends (see start), not when the caller stops waiting for it
+        if (!bulkhead.tryAcquirePermission()) {
+            return CompletableFuture.failedFuture(translate(BulkheadFullException.createBulkheadFullException(bulkhead)));
+        }
+        AtomicBoolean started = new AtomicBoolean();
+        Supplier<CompletionStage<T>> guarded = timeLimiter.decorateCompletionStage(timeouts, () -> {
+            started.set(true);
+            return start(call);
+        });
+        guarded = CircuitBreaker.decorateCompletionStage(circuitBreaker, guarded);
+        CompletionStage<T> result;
+        try {
+            result = guarded.get();
+        } finally {
+            // Refused by the open breaker
+            if (!started.get()) {
+                bulkhead.onComplete();
+            }
+        }
+        return result.toCompletableFuture()
+                .exceptionallyCompose(e -> CompletableFuture.failedFuture(translate(e)));
+    }
+
+    public <T> T call(Callable<T> call) {
+        try {
+            return submit(call).get();
+        } catch (ExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProductServiceUnavailableException("Interrupted while calling product-service", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timeouts.shutdownNow();
+    }
+
+    // When the time limiter gives up on the call, the task is interrupted: a virtual thread blocked on a socket
+    // then closes it, so the Feign call ends and the bulkhead permit comes back
+    private <T> CompletableFuture<T> start(Callable<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = productLookupExecutor.submit(() -> {
+                try {
+                    result.complete(call.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    bulkhead.onComplete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.onComplete();
+            throw e;
+        }
+        result.whenComplete((value, e) -> {
+            if (e != null) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static RuntimeException translate(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof CallNotPermittedException) {
+            return new ProductServiceUnavailableException("product-service circuit breaker is open", cause);
+        }
+        if (cause instanceof BulkheadFullException) {
+            return new ProductServiceUnavailableException("Too many concurrent product-service calls", cause);
+        }
+        if (cause instanceof TimeoutException) {
+            return new ProductServiceUnavailableException("product-service did not answer in time", cause);
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new ProductServiceUnavailableException("product-service call failed", cause);
+    }
+
+    public static class ProductServiceUnavailableException extends ResponseStatusException {
+        public ProductServiceUnavailableException(String message, Throwable cause) {
+            super(HttpStatus.SERVICE_UNAVAILABLE, message, cause);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.tp.orderservice.web;
+
+import com.tp.common.events.DomainEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// Receiving end of HttpEventTransport: events from other services are handed to this instance's
+// @EventListener(DomainEvent) beans, the same way InProcessEventTransport delivers local ones.
+// Only callers with the SERVICE role get here (see SecurityConfig); the gateway does not route it.
+@RestController
+@RequestMapping("/api/events")
+public class EventController {
+
+    private final ApplicationEventPublisher publisher;
+
+    public EventController(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void receive(@RequestBody List<DomainEvent> events) {
+        events.forEach(publisher::publishEvent);
+    }
+}
@@ -1,37 +1,121 @@
 package com.tp.orderservice.web;
 
 import com.tp.orderservice.entities.Order;
+import com.tp.orderservice.model.OrderSubmission;
+import com.tp.orderservice.model.OrderWindow;
+import com.tp.orderservice.services.IdempotentOrderService;
 import com.tp.orderservice.services.OrderService;
+import com.tp.orderservice.services.OrderSubmissionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.util.Arrays;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String LIVE_PRODUCT = "liveProduct";
+
     private final OrderService orderService;
+    private final OrderSubmissionService orderSubmissionService;
+    private final IdempotentOrderService idempotentOrderService;
+    private final int maxBulkSize;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderSubmissionService orderSubmissionService,
+                           IdempotentOrderService idempotentOrderService,
+                           @Value("${app.orders.bulk.max-size:500}") int maxBulkSize) {
         this.orderService = orderService;
+        this.orderSubmissionService = orderSubmissionService;
+        this.idempotentOrderService = idempotentOrderService;
+        this.maxBulkSize = maxBulkSize;
     }
 
+    // Items carry the product name and unit price from when the order was placed. ?expand=liveProduct also
+    // attaches the current product from product-service (one extra cross-service lookup per request)
     @GetMapping
-    public List<Order> getAllOrders(Authentication authentication) {
-        return orderService.getAllOrders(authentication);
+    public List<Order> getAllOrders(@RequestParam(required = false) String expand, Authentication authentication) {
+        return orderService.getAllOrders(expandsLiveProduct(expand), authentication);
+    }
+
+    // Offset paging: GET /api/orders?page=0&size=20
+    @GetMapping(params = "page")
+    public Page<Order> getOrdersPage(@RequestParam int page,
+                                     @RequestParam(defaultValue = "20") int size,
+                                     @RequestParam(required = false) String expand,
+                                     Authentication authentication) {
+        return orderService.getOrdersPage(Math.max(page, 0), clampSize(size), expandsLiveProduct(expand), authentication);
+    }
+
+    // Keyset scrolling: GET /api/orders?cursor=&size=20, then ?cursor=<nextCursor>
+    @GetMapping(params = "cursor")
+    public OrderWindow scrollOrders(@RequestParam String cursor,
+                                    @RequestParam(defaultValue = "20") int size,
+                                    @RequestParam(required = false) String expand,
+                                    Authentication authentication) {
+        return orderService.scrollOrders(cursor, clampSize(size), expandsLiveProduct(expand), authentication);
     }
 
     @GetMapping("/{id}")
-    public Order getOrderById(@PathVariable Long id, Authentication authentication) {
-        return orderService.getOrderById(id, authentication);
+    public Order getOrderById(@PathVariable Long id,
+                              @RequestParam(required = false) String expand,
+                              Authentication authentication) {
+        return orderService.getOrderById(id, expandsLiveProduct(expand), authentication);
+    }
+
+    // Current state of an order: PENDING while an asynchronous submission waits for a worker,
+    // then CONFIRMED, or CANCELED with the reason
+    @GetMapping("/{id}/status")
+    public OrderSubmission getOrderStatus(@PathVariable Long id, Authentication authentication) {
+        return orderService.getOrderSubmission(id, authentication);
     }
 
+    // Retries carrying the same Idempotency-Key get the order created by the first request instead of a new one
     @PostMapping
-    public Order createOrder(@RequestBody Order order, Authentication authentication) {
+    public Order createOrder(@RequestBody Order order,
+                             @RequestHeader(name = IdempotentOrderService.IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                             Authentication authentication) {
+        if (idempotencyKey != null) {
+            return idempotentOrderService.createOrder(idempotencyKey, order, authentication);
+        }
         return orderService.createOrder(order, authentication);
     }
 
+    // POST /api/orders?async=true answers 202 as soon as the order is stored as PENDING; the Location header
+    // points to its status. 503 with Retry-After when too many submissions are already waiting.
+    // Retries carrying the same Idempotency-Key get the first submission's order instead of a new one
+    @PostMapping(params = "async=true")
+    public ResponseEntity<OrderSubmission> submitOrder(
+            @RequestBody Order order,
+            @RequestHeader(name = IdempotentOrderService.IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            Authentication authentication) {
+        Order accepted = idempotencyKey != null
+                ? idempotentOrderService.submitOrder(idempotencyKey, order, authentication)
+                : orderSubmissionService.submit(order, authentication);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequestUri().replaceQuery(null)
+                        .path("/{id}/status").buildAndExpand(accepted.getId()).toUri())
+                .body(OrderSubmission.of(accepted));
+    }
+
+    // Imports many orders in one transaction: all of them are created, or none
+    @PostMapping("/bulk")
+    public List<Order> createOrders(@RequestBody List<Order> orders, Authentication authentication) {
+        if (orders.isEmpty() || orders.size() > maxBulkSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A bulk import takes between 1 and " + maxBulkSize + " orders");
+        }
+        return orderService.createOrders(orders, authentication);
+    }
+
     @PutMapping("/{id}")
     public Order updateOrder(@PathVariable Long id,
                                    @RequestBody Order orderDetails) {
@@ -42,4 +126,12 @@ public class OrderController {
     public void deleteOrderById(@PathVariable Long id) {
         orderService.deleteOrderById(id);
     }
+
+    private static int clampSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
+
+    private static boolean expandsLiveProduct(String expand) {
+        return expand != null && Arrays.asList(expand.split(",")).contains(LIVE_PRODUCT);
+    }
 }
@@ -0,0 +1,37 @@
+package com.tp.orderservice.web;
+
+import com.tp.orderservice.model.OrderStats;
+import com.tp.orderservice.services.OrderStatsService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+// Precomputed order totals; reading them costs a few primary-key lookups however many orders there are
+@RestController
+@RequestMapping("/api/orders/stats")
+public class OrderStatsController {
+
+    private final OrderStatsService orderStatsService;
+
+    public OrderStatsController(OrderStatsService orderStatsService) {
+        this.orderStatsService = orderStatsService;
+    }
+
+    // GET /api/orders/stats: the caller's order count and spend. Admins also get the totals per status and
+    // per day: ?from=2026-01-01&to=2026-01-31 (ISO dates, at most 366 days), ?userId= for another user's totals
+    @GetMapping
+    public OrderStats getStats(@RequestParam(required = false) String userId,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                               Authentication authentication) {
+        return orderStatsService.getStats(userId, from, to, authentication);
+    }
+
+    // Recomputes every total from the orders table (also done on a schedule)
+    @PostMapping("/rebuild")
+    public int rebuild() {
+        return orderStatsService.rebuild();
+    }
+}
@@ -0,0 +1,26 @@
+package com.tp.orderservice.web;
+
+import com.tp.orderservice.services.ProductCache;
+import org.springframework.web.bind.annotation.*;
+
+// Manual invalidation of cached product snapshots; product changes normally arrive as events (ProductEventListener)
+@RestController
+@RequestMapping("/api/product-cache")
+public class ProductCacheController {
+
+    private final ProductCache productCache;
+
+    public ProductCacheController(ProductCache productCache) {
+        this.productCache = productCache;
+    }
+
+    @DeleteMapping("/{productId}")
+    public void invalidate(@PathVariable Long productId) {
+        productCache.invalidate(productId);
+    }
+
+    @DeleteMapping
+    public void invalidateAll() {
+        productCache.invalidateAll();
+    }
+}
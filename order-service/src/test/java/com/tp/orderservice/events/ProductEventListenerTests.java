@@ -0,0 +1,63 @@
+package com.tp.orderservice.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tp.common.events.DomainEvent;
+import com.tp.orderservice.model.Product;
+import com.tp.orderservice.services.ProductCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductEventListenerTests {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ProductCache productCache = new ProductCache(new SimpleMeterRegistry(), 100,
+            Duration.ofMinutes(1), Duration.ofHours(1));
+    private final ProductEventListener listener = new ProductEventListener(productCache, objectMapper);
+
+    @Test
+    void updatesReplaceCachedSnapshotsButRedeliveredOlderOnesDoNot() throws Exception {
+        listener.on(productEvent(1, "ProductUpdated", Map.of("id", 7, "name", "Laptop Pro", "price", 1500.0, "version", 2)));
+        listener.on(productEvent(2, "ProductUpdated", Map.of("id", 7, "name", "Laptop", "price", 1200.0, "version", 1)));
+
+        Product cached = productCache.getAllPresent(List.of(7L)).get(7L);
+        assertThat(cached.getName()).isEqualTo("Laptop Pro");
+        assertThat(cached.getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    void deletesDropBothTheFreshAndTheLastKnownSnapshot() throws Exception {
+        listener.on(productEvent(1, "ProductCreated", Map.of("id", 7, "name", "Laptop", "version", 0)));
+        listener.on(productEvent(2, "ProductDeleted", Map.of("id", 7)));
+
+        assertThat(productCache.getAllPresent(List.of(7L))).isEmpty();
+        assertThat(productCache.getAllPresentOrStale(List.of(7L))).isEmpty();
+    }
+
+    @Test
+    void invalidatingEverythingAlsoDropsTheLastKnownSnapshots() throws Exception {
+        listener.on(productEvent(1, "ProductCreated", Map.of("id", 7, "name", "Laptop", "version", 0)));
+
+        productCache.invalidateAll();
+
+        assertThat(productCache.getAllPresentOrStale(List.of(7L))).isEmpty();
+    }
+
+    @Test
+    void eventsFromOtherSourcesAreIgnored() throws Exception {
+        listener.on(new DomainEvent(1L, "order-service", "Product", "7", "ProductUpdated", Instant.now(),
+                objectMapper.valueToTree(Map.of("id", 7, "name", "Laptop"))));
+
+        assertThat(productCache.getAllPresentOrStale(List.of(7L))).isEmpty();
+    }
+
+    private DomainEvent productEvent(long id, String type, Map<String, Object> payload) {
+        return new DomainEvent(id, "product-service", "Product", String.valueOf(payload.get("id")), type,
+                Instant.now(), objectMapper.valueToTree(payload));
+    }
+}
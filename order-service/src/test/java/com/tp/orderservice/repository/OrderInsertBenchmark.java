@@ -0,0 +1,163 @@
+package com.tp.orderservice.repository;
+
+import com.tp.orderservice.entities.Order;
+import com.tp.orderservice.entities.OrderItem;
+import com.tp.orderservice.enums.OrderStatus;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Rows inserted per second when creating orders of 50 lines, ten orders per transaction, with the ids the
+// entities had before (identity columns: one INSERT round trip per row) and with the pooled sequences
+// (JDBC batches of 50). The "inserts" line of the output is the figure to compare.
+// Runs against in-memory H2 by default, where a round trip costs almost nothing; the gap is much wider on
+// PostgreSQL over the network:
+//   -Dbench.jdbc-url=jdbc:postgresql://localhost:5432/orderdb?reWriteBatchedInserts=true -Dbench.username=... -Dbench.password=...
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.tp.orderservice.repository.OrderInsertBenchmark
+// or from the IDE through main().
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderInsertBenchmark {
+    private static final int ORDERS_PER_TRANSACTION = 10;
+    private static final int LINES_PER_ORDER = 50;
+
+    @Param({"identity", "sequence"})
+    private String ids;
+
+    private SessionFactory sessionFactory;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long inserts;
+    }
+
+    @Setup(Level.Trial)
+    public void createSchema() {
+        Configuration configuration = new Configuration()
+                .setProperty("hibernate.connection.url",
+                        System.getProperty("bench.jdbc-url", "jdbc:h2:mem:orders-bench;DB_CLOSE_DELAY=-1"))
+                .setProperty("hibernate.connection.username", System.getProperty("bench.username", "sa"))
+                .setProperty("hibernate.connection.password", System.getProperty("bench.password", ""))
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                // Same settings as application.properties
+                .setProperty("hibernate.jdbc.batch_size", "50")
+                .setProperty("hibernate.order_inserts", "true")
+                .setProperty("hibernate.order_updates", "true");
+        if (ids.equals("identity")) {
+            configuration.addAnnotatedClass(IdentityOrder.class).addAnnotatedClass(IdentityOrderItem.class);
+        } else {
+            configuration.addAnnotatedClass(Order.class).addAnnotatedClass(OrderItem.class);
+        }
+        sessionFactory = configuration.buildSessionFactory();
+    }
+
+    @TearDown(Level.Trial)
+    public void dropSchema() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public void insertOrders(Rows rows) {
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < ORDERS_PER_TRANSACTION; i++) {
+                if (ids.equals("identity")) {
+                    IdentityOrder order = new IdentityOrder();
+                    order.userId = "bench";
+                    order.orderDate = LocalDateTime.now();
+                    order.status = OrderStatus.CREATED;
+                    session.persist(order);
+                    for (int line = 0; line < LINES_PER_ORDER; line++) {
+                        IdentityOrderItem item = new IdentityOrderItem();
+                        item.order = order;
+                        item.productId = (long) line;
+                        item.productName = "Product " + line;
+                        item.quantity = 1;
+                        item.price = 10.0;
+                        session.persist(item);
+                    }
+                } else {
+                    Order order = Order.builder().userId("bench").orderDate(LocalDateTime.now())
+                            .status(OrderStatus.CREATED).build();
+                    session.persist(order);
+                    for (int line = 0; line < LINES_PER_ORDER; line++) {
+                        session.persist(OrderItem.builder().order(order).productId((long) line)
+                                .productName("Product " + line).quantity(1).price(10.0).build());
+                    }
+                }
+            }
+        });
+        rows.inserts += ORDERS_PER_TRANSACTION * (1 + LINES_PER_ORDER);
+    }
+
+    // Order and OrderItem as mapped before the move to sequences
+    @Entity
+    @Table(name = "identity_orders")
+    static class IdentityOrder {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        LocalDateTime orderDate;
+        @Enumerated(EnumType.STRING)
+        OrderStatus status;
+        Double totalAmount;
+        String userId;
+        String reservationId;
+        @OneToMany(mappedBy = "order")
+        List<IdentityOrderItem> orderItems = new ArrayList<>();
+    }
+
+    @Entity
+    @Table(name = "identity_order_item")
+    static class IdentityOrderItem {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        Long productId;
+        Integer quantity;
+        Double price;
+        String productName;
+        @ManyToOne
+        @JoinColumn(name = "order_id")
+        IdentityOrder order;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrderInsertBenchmark.class.getSimpleName()).build()).run();
+    }
+}
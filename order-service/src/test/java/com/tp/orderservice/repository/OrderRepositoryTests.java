@@ -0,0 +1,147 @@
+package com.tp.orderservice.repository;
+
+import com.tp.orderservice.entities.Order;
+import com.tp.orderservice.entities.OrderItem;
+import com.tp.orderservice.enums.OrderStatus;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class OrderRepositoryTests {
+    private static final int ORDERS = 25;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = Order.builder()
+                    .orderDate(LocalDateTime.now().minusMinutes(i))
+                    .status(OrderStatus.CREATED)
+                    .totalAmount(10.0)
+                    .userId(i % 2 == 0 ? "alice" : "bob")
+                    .build();
+            List<OrderItem> items = new ArrayList<>();
+            for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                items.add(OrderItem.builder().productId((long) j).productName("Product " + j)
+                        .quantity(1).price(10.0).order(order).build());
+            }
+            order.setOrderItems(items);
+            entityManager.persist(order);
+            items.forEach(entityManager::persist);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllLoadsOrdersAndItemsInOneStatement() {
+        List<Order> orders = orderRepository.findAll();
+
+        assertThat(countItems(orders)).isEqualTo(ORDERS * ITEMS_PER_ORDER);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findByUserIdLoadsOrdersAndItemsInOneStatement() {
+        List<Order> orders = orderRepository.findByUserId("alice");
+
+        assertThat(countItems(orders)).isEqualTo(13 * ITEMS_PER_ORDER);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void pagedReadBatchFetchesItems() {
+        List<Order> orders = orderRepository.findAll(
+                PageRequest.of(0, 20, Sort.by(Sort.Order.desc("orderDate")))).getContent();
+
+        assertThat(countItems(orders)).isEqualTo(20 * ITEMS_PER_ORDER);
+        // page + count + one batched orderItems query, whatever the page size
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void scrolledReadBatchFetchesItems() {
+        List<Order> orders = orderRepository
+                .findByUserIdOrderByOrderDateDescIdDesc("bob", ScrollPosition.keyset(), Limit.of(10))
+                .getContent();
+
+        assertThat(countItems(orders)).isEqualTo(10 * ITEMS_PER_ORDER);
+        // window + one batched orderItems query
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void itemSnapshotIsNeverRewritten() {
+        OrderItem item = orderRepository.findByUserId("alice").get(0).getOrderItems().get(0);
+        item.setProductName("Renamed");
+        item.setPrice(99.0);
+        item.setQuantity(2);
+        entityManager.flush();
+        entityManager.clear();
+
+        OrderItem reloaded = entityManager.find(OrderItem.class, item.getId());
+        assertThat(reloaded.getProductName()).isEqualTo("Product 0");
+        assertThat(reloaded.getPrice()).isEqualTo(10.0);
+        assertThat(reloaded.getQuantity()).isEqualTo(2);
+    }
+
+    @Test
+    void newOrdersAreInsertedInJdbcBatches() {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Order order = Order.builder().orderDate(LocalDateTime.now()).status(OrderStatus.CREATED)
+                    .totalAmount(500.0).userId("alice").build();
+            List<OrderItem> items = new ArrayList<>();
+            for (int j = 0; j < 50; j++) {
+                items.add(OrderItem.builder().productId((long) j).productName("Product " + j)
+                        .quantity(1).price(10.0).order(order).build());
+            }
+            order.setOrderItems(items);
+            orders.add(order);
+        }
+
+        orderRepository.saveAll(orders);
+        entityManager.flush();
+
+        // 510 rows: orders in one batch, items in ten, plus a few sequence calls for blocks of 50 ids
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(510);
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(25);
+    }
+
+    private static int countItems(List<Order> orders) {
+        return orders.stream().mapToInt(order -> order.getOrderItems().size()).sum();
+    }
+}
@@ -0,0 +1,251 @@
+package com.tp.orderservice.services;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.tp.orderservice.entities.IdempotencyRecord;
+import com.tp.orderservice.entities.Order;
+import com.tp.orderservice.entities.OrderItem;
+import com.tp.orderservice.enums.OrderStatus;
+import com.tp.orderservice.repository.IdempotencyRecordRepository;
+import com.tp.orderservice.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Attempts run in their own transactions, as they do behind the controller
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotentOrderServiceTests {
+    private static final Authentication ALICE = new TestingAuthenticationToken("alice", null);
+    private static final Authentication BOB = new TestingAuthenticationToken("bob", null);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository records;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private FakeOrderService orders;
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotentOrderService idempotentOrders;
+    private final List<OrderSubmissionService> submissionServices = new ArrayList<>();
+
+    // Stores the order without pricing it; creations can be held on the gate
+    static class FakeOrderService extends OrderService {
+        private final OrderRepository orderRepository;
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger processed = new AtomicInteger();
+        volatile CountDownLatch started = new CountDownLatch(0);
+        volatile CountDownLatch gate = new CountDownLatch(0);
+
+        FakeOrderService(OrderRepository orderRepository) {
+            super(orderRepository, null, null, null, null, null);
+            this.orderRepository = orderRepository;
+        }
+
+        @Override
+        public Order createOrder(Order order, Authentication authentication) {
+            created.incrementAndGet();
+            started.countDown();
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            order.setUserId(getUserId(authentication));
+            order.setOrderDate(LocalDateTime.now());
+            order.setStatus(OrderStatus.CREATED);
+            order.getOrderItems().forEach(item -> item.setOrder(order));
+            return orderRepository.save(order);
+        }
+
+        @Override
+        public Order acceptOrder(Order order, Authentication authentication) {
+            created.incrementAndGet();
+            return orderRepository.save(Order.builder().userId(getUserId(authentication))
+                    .orderDate(LocalDateTime.now()).status(OrderStatus.PENDING).build());
+        }
+
+        @Override
+        public Order processPendingOrder(Long id, List<OrderItem> items) {
+            processed.incrementAndGet();
+            return null;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        orders = new FakeOrderService(orderRepository);
+        meterRegistry = new SimpleMeterRegistry();
+        idempotentOrders = instance(orders, meterRegistry);
+    }
+
+    private IdempotentOrderService instance(FakeOrderService orderService, SimpleMeterRegistry registry) {
+        OrderSubmissionService submissions = new OrderSubmissionService(orderService, registry, 1, 10,
+                Duration.ofMinutes(5));
+        submissionServices.add(submissions);
+        return new IdempotentOrderService(orderService, submissions, records, transactionTemplate,
+                JsonMapper.builder().findAndAddModules().build(), registry, Duration.ofHours(1),
+                Duration.ofSeconds(5), 100, Duration.ofMinutes(10), Duration.ofMinutes(10), 2);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (OrderSubmissionService submissions : submissionServices) {
+            submissions.shutdown();
+        }
+        records.deleteAll();
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void retryReturnsTheFirstOrderWithoutCreatingAnother() {
+        Order first = idempotentOrders.createOrder("key-1", order(2), ALICE);
+        Order retry = idempotentOrders.createOrder("key-1", order(2), ALICE);
+
+        assertThat(retry.getId()).isEqualTo(first.getId());
+        assertThat(retry.getOrderItems()).extracting(OrderItem::getQuantity).containsExactly(2);
+        assertThat(orders.created).hasValue(1);
+        assertThat(orderRepository.count()).isEqualTo(1);
+        assertThat(meterRegistry.get("orders.idempotency.replays").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void asyncRetryReturnsTheFirstSubmissionWithoutQueueingAnother() {
+        Order first = idempotentOrders.submitOrder("key-1", order(2), ALICE);
+        Order retry = idempotentOrders.submitOrder("key-1", order(2), ALICE);
+
+        assertThat(retry.getId()).isEqualTo(first.getId());
+        assertThat(retry.getStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(orders.created).hasValue(1);
+        assertThat(orderRepository.count()).isEqualTo(1);
+        waitUntil(() -> orders.processed.get() == 1);
+    }
+
+    @Test
+    void keysAreScopedToTheCallerAndBoundToTheirOrder() {
+        Order alices = idempotentOrders.createOrder("key-1", order(2), ALICE);
+        Order bobs = idempotentOrders.createOrder("key-1", order(2), BOB);
+
+        assertThat(bobs.getId()).isNotEqualTo(alices.getId());
+        assertThatThrownBy(() -> idempotentOrders.createOrder("key-1", order(3), ALICE))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+        assertThat(orders.created).hasValue(2);
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForTheAttemptInFlight() throws Exception {
+        orders.started = new CountDownLatch(1);
+        orders.gate = new CountDownLatch(1);
+        CompletableFuture<Order> first = CompletableFuture.supplyAsync(
+                () -> idempotentOrders.createOrder("key-1", order(2), ALICE));
+        assertThat(orders.started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Order> duplicate = CompletableFuture.supplyAsync(
+                () -> idempotentOrders.createOrder("key-1", order(2), ALICE));
+
+        Thread.sleep(100);
+        assertThat(duplicate).isNotDone();
+        orders.gate.countDown();
+
+        assertThat(duplicate.get(5, TimeUnit.SECONDS).getId()).isEqualTo(first.get(5, TimeUnit.SECONDS).getId());
+        assertThat(orders.created).hasValue(1);
+    }
+
+    // Two instances do not see each other's attempts in flight: both create an order, the database keeps one
+    @Test
+    void concurrentDuplicateOnAnotherInstanceKeepsTheFirstStoredOrder() throws Exception {
+        FakeOrderService otherOrders = new FakeOrderService(orderRepository);
+        IdempotentOrderService otherInstance = instance(otherOrders, new SimpleMeterRegistry());
+        orders.started = new CountDownLatch(1);
+        orders.gate = new CountDownLatch(1);
+        otherOrders.started = new CountDownLatch(1);
+        otherOrders.gate = new CountDownLatch(1);
+        CompletableFuture<Order> first = CompletableFuture.supplyAsync(
+                () -> idempotentOrders.createOrder("key-1", order(2), ALICE));
+        CompletableFuture<Order> second = CompletableFuture.supplyAsync(
+                () -> otherInstance.createOrder("key-1", order(2), ALICE));
+        assertThat(orders.started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(otherOrders.started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        orders.gate.countDown();
+        Long winner = first.get(5, TimeUnit.SECONDS).getId();
+        otherOrders.gate.countDown();
+
+        assertThat(second.get(5, TimeUnit.SECONDS).getId()).isEqualTo(winner);
+        assertThat(records.findAll()).extracting(IdempotencyRecord::getOrderId).containsExactly(winner);
+        assertThat(orderRepository.findAll()).extracting(Order::getId).containsExactly(winner);
+        assertThat(otherOrders.created).hasValue(1);
+    }
+
+    @Test
+    void expiredKeyIsTakenOverByTheNextOrder() {
+        records.save(record(IdempotentOrderService.recordId("alice", "key-1"), Instant.now().minusSeconds(60)));
+
+        Order created = idempotentOrders.createOrder("key-1", order(3), ALICE);
+
+        assertThat(orders.created).hasValue(1);
+        assertThat(records.findAll()).singleElement().satisfies(record -> {
+            assertThat(record.getOrderId()).isEqualTo(created.getId());
+            assertThat(record.getExpiresAt()).isAfter(Instant.now());
+        });
+    }
+
+    @Test
+    void expiredKeysAreDeletedInBatches() {
+        Instant now = Instant.now();
+        for (int i = 0; i < 5; i++) {
+            records.save(record("expired-" + i, now.minusSeconds(60 + i)));
+        }
+        records.save(record("live", now.plusSeconds(60)));
+
+        assertThat(idempotentOrders.deleteExpired()).isEqualTo(5);
+        assertThat(records.findAll()).extracting(IdempotencyRecord::getId).containsExactly("live");
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private static Order order(int quantity) {
+        return Order.builder()
+                .orderItems(List.of(OrderItem.builder().productId(7L).quantity(quantity).build()))
+                .build();
+    }
+
+    private static IdempotencyRecord record(String id, Instant expiresAt) {
+        return IdempotencyRecord.builder().id(id).requestHash("hash").orderId(1L).response("{}")
+                .createdAt(expiresAt.minusSeconds(3600)).expiresAt(expiresAt).build();
+    }
+}
@@ -0,0 +1,255 @@
+package com.tp.orderservice.services;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.tp.common.events.Outbox;
+import com.tp.common.events.OutboxRepository;
+import com.tp.orderservice.clients.ProductReservationClient;
+import com.tp.orderservice.entities.Order;
+import com.tp.orderservice.entities.OrderItem;
+import com.tp.orderservice.enums.OrderStatus;
+import com.tp.orderservice.model.OrderStats.Totals;
+import com.tp.orderservice.model.Product;
+import com.tp.orderservice.model.StockReservation;
+import com.tp.orderservice.repository.OrderRepository;
+import com.tp.orderservice.repository.OrderStatBulkRepository;
+import com.tp.orderservice.repository.OrderStatRepository;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The submission worker and the stale-order sweep run in their own transactions, as they do in the service
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import(OrderStatBulkRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderServiceTests {
+    private static final Authentication ALICE = new TestingAuthenticationToken("alice", null, "ROLE_CLIENT");
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderStatRepository orderStatRepository;
+
+    @Autowired
+    private OrderStatBulkRepository bulkRepository;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private PausingOrderStats orderStats;
+    private OrderService orderService;
+
+    // Holds the first change recorded on the gate, inside the transaction that records it
+    static class PausingOrderStats extends OrderStatsService {
+        final CountDownLatch paused = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        private boolean first = true;
+
+        PausingOrderStats(OrderStatRepository orderStatRepository, OrderStatBulkRepository bulkRepository,
+                          OrderRepository orderRepository, TransactionTemplate transactionTemplate) {
+            super(orderStatRepository, bulkRepository, orderRepository, transactionTemplate, Duration.ofDays(1));
+        }
+
+        @Override
+        public void recordChange(Contribution before, Contribution after) {
+            boolean pause;
+            synchronized (this) {
+                pause = first;
+                first = false;
+            }
+            if (pause) {
+                paused.countDown();
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            super.recordChange(before, after);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        orderStats = new PausingOrderStats(orderStatRepository, bulkRepository, orderRepository, transactionTemplate);
+        // Orders without items never reach product-service; the worker gets a mutable copy of the items
+        orderService = new OrderService(orderRepository, null, null, null,
+                new Outbox(outboxRepository, JsonMapper.builder().findAndAddModules().build(), jdbcTemplate),
+                orderStats);
+    }
+
+    // Records the calls; reservations are numbered r-1, r-2...
+    static class FakeReservationClient implements ProductReservationClient {
+        final List<String> calls = new CopyOnWriteArrayList<>();
+        private final AtomicInteger ids = new AtomicInteger();
+
+        @Override
+        public List<StockReservation> reserveAll(List<StockReservation> reservations) {
+            calls.add("reserveAll:" + reservations.size());
+            return reservations.stream()
+                    .map(r -> new StockReservation("r-" + ids.incrementAndGet(), "RESERVED", r.getItems()))
+                    .toList();
+        }
+
+        @Override
+        public List<StockReservation> confirmAll(List<String> reservationIds) {
+            calls.add("confirmAll:" + reservationIds);
+            return List.of();
+        }
+
+        @Override
+        public List<StockReservation> releaseAll(List<String> reservationIds) {
+            calls.add("releaseAll:" + reservationIds);
+            return List.of();
+        }
+
+        @Override
+        public StockReservation cancelReservation(String id) {
+            calls.add("cancel:" + id);
+            return null;
+        }
+    }
+
+    private OrderService withProductService(ProductReservationClient reservations) {
+        ProductLookupService products = new ProductLookupService(null, null, null, new SimpleMeterRegistry(), 100,
+                Duration.ofSeconds(5)) {
+            @Override
+            public Map<Long, Product> getProducts(Collection<Long> ids) {
+                Product laptop = new Product();
+                laptop.setId(7L);
+                laptop.setName("Laptop");
+                laptop.setPrice(1200.0);
+                return Map.of(7L, laptop);
+            }
+        };
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        ProductServiceGuard guard = new ProductServiceGuard(CircuitBreakerRegistry.ofDefaults(),
+                BulkheadRegistry.ofDefaults(), TimeLimiterRegistry.ofDefaults(), executor);
+        return new OrderService(orderRepository, products, reservations, guard,
+                new Outbox(outboxRepository, JsonMapper.builder().findAndAddModules().build(), jdbcTemplate),
+                orderStats);
+    }
+
+    private static Order orderOf(Long productId, int quantity) {
+        return Order.builder()
+                .orderItems(new ArrayList<>(List.of(OrderItem.builder().productId(productId).quantity(quantity).build())))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderStatRepository.deleteAll();
+        outboxRepository.deleteAll();
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void sweepDoesNotCancelAnOrderTheWorkerIsConfirming() throws Exception {
+        Long id = accept();
+
+        CompletableFuture<Void> worker = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(
+                status -> orderService.processPendingOrder(id, new ArrayList<>())));
+        assertThat(orderStats.paused.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Integer> sweep = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(
+                status -> orderService.cancelStalePendingOrders(Duration.ZERO)));
+        Thread.sleep(200);
+        orderStats.gate.countDown();
+        worker.get(5, TimeUnit.SECONDS);
+
+        assertThat(sweep.get(5, TimeUnit.SECONDS)).isZero();
+        assertThat(orderRepository.findById(id)).get().extracting(Order::getStatus).isEqualTo(OrderStatus.CONFIRMED);
+        assertStatusTotals(OrderStatus.CONFIRMED);
+    }
+
+    @Test
+    void workerLeavesAnOrderTheSweepCanceled() throws Exception {
+        Long id = accept();
+
+        CompletableFuture<Integer> sweep = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(
+                status -> orderService.cancelStalePendingOrders(Duration.ZERO)));
+        assertThat(orderStats.paused.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Order> worker = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(
+                status -> orderService.processPendingOrder(id, new ArrayList<>())));
+        Thread.sleep(200);
+        orderStats.gate.countDown();
+
+        assertThat(sweep.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        worker.get(5, TimeUnit.SECONDS);
+        assertThat(orderRepository.findById(id)).get().extracting(Order::getStatus).isEqualTo(OrderStatus.CANCELED);
+        assertStatusTotals(OrderStatus.CANCELED);
+    }
+
+    @Test
+    void bulkOrdersReserveAndConfirmTheirStockInOneCallEach() {
+        FakeReservationClient reservations = new FakeReservationClient();
+        OrderService withProducts = withProductService(reservations);
+
+        List<Order> created = transactionTemplate.execute(status -> withProducts.createOrders(
+                List.of(orderOf(7L, 2), orderOf(7L, 1), Order.builder().build()), ALICE));
+
+        assertThat(reservations.calls).containsExactly("reserveAll:2", "confirmAll:[r-1, r-2]");
+        assertThat(created).extracting(Order::getReservationId).containsExactly("r-1", "r-2", null);
+    }
+
+    @Test
+    void bulkOrdersGiveTheirStockBackTogetherOnRollback() {
+        FakeReservationClient reservations = new FakeReservationClient();
+        OrderService withProducts = withProductService(reservations);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            withProducts.createOrders(List.of(orderOf(7L, 2), orderOf(7L, 1)), ALICE);
+            status.setRollbackOnly();
+        });
+
+        assertThat(reservations.calls).containsExactly("reserveAll:2", "releaseAll:[r-1, r-2]");
+        assertThat(orderRepository.count()).isZero();
+    }
+
+    private Long accept() {
+        return transactionTemplate.execute(status -> orderService.acceptOrder(Order.builder().build(), ALICE)).getId();
+    }
+
+    // The order is counted once, in its final status
+    private void assertStatusTotals(OrderStatus finalStatus) {
+        for (OrderStatus status : OrderStatus.values()) {
+            Totals expected = status == finalStatus ? new Totals(1, 0.0) : Totals.NONE;
+            assertThat(orderStatRepository.findById("status:" + status)
+                    .map(row -> new Totals(row.getOrderCount(), row.getAmount())).orElse(Totals.NONE))
+                    .as(status.toString()).isEqualTo(expected);
+        }
+    }
+}
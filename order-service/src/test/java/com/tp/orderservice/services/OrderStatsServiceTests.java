@@ -0,0 +1,151 @@
+package com.tp.orderservice.services;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.tp.common.events.Outbox;
+import com.tp.common.events.OutboxRepository;
+import com.tp.orderservice.entities.Order;
+import com.tp.orderservice.enums.OrderStatus;
+import com.tp.orderservice.model.OrderStats;
+import com.tp.orderservice.model.OrderStats.DayTotals;
+import com.tp.orderservice.model.OrderStats.Totals;
+import com.tp.orderservice.repository.OrderRepository;
+import com.tp.orderservice.repository.OrderStatBulkRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@Import({OrderStatsService.class, OrderStatBulkRepository.class})
+class OrderStatsServiceTests {
+    private static final LocalDate MONDAY = LocalDate.of(2026, 10, 12);
+    private static final Authentication ALICE = new TestingAuthenticationToken("alice", null, "ROLE_CLIENT");
+    private static final Authentication BOB = new TestingAuthenticationToken("bob", null, "ROLE_CLIENT");
+    private static final Authentication ADMIN = new TestingAuthenticationToken("admin", null, "ROLE_ADMIN");
+
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Orders without items never reach product-service
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderService = new OrderService(orderRepository, null, null, null,
+                new Outbox(outboxRepository, JsonMapper.builder().findAndAddModules().build(), jdbcTemplate),
+                orderStatsService);
+    }
+
+    @Test
+    void totalsFollowEveryOrderChange() {
+        Order first = place(ALICE, MONDAY);
+        Order second = place(ALICE, MONDAY);
+        Order third = place(BOB, MONDAY.plusDays(1));
+        orderService.updateOrder(first.getId(), Order.builder().status(OrderStatus.CONFIRMED).totalAmount(100.0).build());
+        orderService.updateOrder(second.getId(), Order.builder().status(OrderStatus.CANCELED).totalAmount(40.0).build());
+        orderService.updateOrder(third.getId(), Order.builder().status(OrderStatus.CONFIRMED).totalAmount(25.0).build());
+        place(BOB, MONDAY.plusDays(1));
+        orderService.deleteOrderById(third.getId());
+
+        OrderStats stats = orderStatsService.getStats("alice", MONDAY, MONDAY.plusDays(2), ADMIN);
+
+        assertThat(stats.user()).isEqualTo(new Totals(1, 100.0));
+        assertThat(stats.byStatus()).containsEntry(OrderStatus.CREATED, new Totals(1, 0.0))
+                .containsEntry(OrderStatus.CONFIRMED, new Totals(1, 100.0))
+                .containsEntry(OrderStatus.CANCELED, new Totals(1, 40.0))
+                .containsEntry(OrderStatus.PENDING, Totals.NONE);
+        assertThat(stats.byDay()).containsExactly(
+                new DayTotals(MONDAY, 1, 100.0),
+                new DayTotals(MONDAY.plusDays(1), 1, 0.0),
+                new DayTotals(MONDAY.plusDays(2), 0, 0.0));
+    }
+
+    @Test
+    void deletingAnUnknownOrderChangesNothing() {
+        Order order = place(ALICE, MONDAY);
+        long events = outboxRepository.count();
+
+        orderService.deleteOrderById(order.getId() + 1);
+
+        assertThat(outboxRepository.count()).isEqualTo(events);
+        assertThat(orderStatsService.getStats(null, null, null, ALICE).user()).isEqualTo(new Totals(1, 0.0));
+    }
+
+    @Test
+    void rebuildCorrectsOnlyTheTotalsThatDrifted() {
+        Order first = place(ALICE, MONDAY);
+        place(BOB, MONDAY);
+        orderService.updateOrder(first.getId(), Order.builder().status(OrderStatus.CONFIRMED).totalAmount(60.5).build());
+        entityManager.flush();
+        entityManager.clear();
+        OrderStats incremental = orderStatsService.getStats("alice", MONDAY, MONDAY, ADMIN);
+        assertThat(orderStatsService.rebuild()).isZero();
+
+        jdbcTemplate.update("UPDATE order_stat SET amount = amount + 0.25 WHERE id = 'status:CONFIRMED'");
+        jdbcTemplate.update("DELETE FROM order_stat WHERE id = 'user:bob'");
+        jdbcTemplate.update("INSERT INTO order_stat (id, order_count, amount) VALUES ('day:2000-01-01', 1, 5)");
+
+        assertThat(orderStatsService.rebuild()).isEqualTo(3);
+        entityManager.clear();
+
+        assertThat(orderStatsService.getStats("alice", MONDAY, MONDAY, ADMIN)).isEqualTo(incremental);
+        assertThat(orderStatsService.getStats("bob", null, null, ADMIN).user()).isEqualTo(new Totals(1, 0.0));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM order_stat WHERE id = 'day:2000-01-01'",
+                Integer.class)).isZero();
+    }
+
+    @Test
+    void scheduledRebuildsSkipTotalsAnotherInstanceJustRebuilt() {
+        place(ALICE, MONDAY);
+        Instant dayAgo = Instant.now().minus(Duration.ofDays(1));
+
+        assertThat(orderStatsService.rebuild(dayAgo)).isZero();
+        assertThat(orderStatsService.rebuild(dayAgo)).isNull();
+        assertThat(orderStatsService.rebuild()).isZero();
+    }
+
+    @Test
+    void usersOnlySeeTheirOwnTotals() {
+        place(ALICE, MONDAY);
+
+        assertThat(orderStatsService.getStats(null, null, null, ALICE))
+                .isEqualTo(new OrderStats("alice", new Totals(1, 0.0), null, null));
+        assertThat(orderStatsService.getStats(null, null, null, BOB).user()).isEqualTo(Totals.NONE);
+        assertThatThrownBy(() -> orderStatsService.getStats("alice", null, null, BOB))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    private Order place(Authentication user, LocalDate day) {
+        return orderService.createOrder(Order.builder()
+                .status(OrderStatus.CREATED)
+                .orderDate(LocalDateTime.of(day, LocalTime.NOON))
+                .build(), user);
+    }
+}
@@ -0,0 +1,179 @@
+package com.tp.orderservice.services;
+
+import com.tp.orderservice.entities.Order;
+import com.tp.orderservice.entities.OrderItem;
+import com.tp.orderservice.enums.OrderStatus;
+import com.tp.orderservice.services.OrderSubmissionService.SubmissionQueueFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderSubmissionServiceTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FakeOrderService orders = new FakeOrderService();
+    private OrderSubmissionService submissions;
+
+    // Keeps orders in a map; processing blocks on the gate and fails for orders without items
+    static class FakeOrderService extends OrderService {
+        final Map<Long, Order> stored = new ConcurrentHashMap<>();
+        final CountDownLatch gate = new CountDownLatch(1);
+        private final AtomicLong ids = new AtomicLong();
+
+        FakeOrderService() {
+            super(null, null, null, null, null, null);
+        }
+
+        @Override
+        public Order acceptOrder(Order order, Authentication authentication) {
+            Order accepted = Order.builder().id(ids.incrementAndGet()).status(OrderStatus.PENDING).build();
+            stored.put(accepted.getId(), accepted);
+            return accepted;
+        }
+
+        @Override
+        public Order processPendingOrder(Long id, List<OrderItem> items) {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (items.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Insufficient stock for product 7");
+            }
+            Order order = stored.get(id);
+            order.setStatus(OrderStatus.CONFIRMED);
+            return order;
+        }
+
+        @Override
+        public boolean cancelPendingOrder(Long id, String reason) {
+            Order order = stored.get(id);
+            order.setStatus(OrderStatus.CANCELED);
+            order.setFailureReason(reason);
+            return true;
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        orders.gate.countDown();
+        submissions.shutdown();
+    }
+
+    @Test
+    void submittedOrderIsPendingUntilAWorkerConfirmsIt() {
+        submissions = new OrderSubmissionService(orders, meterRegistry, 1, 1, Duration.ofMinutes(5));
+
+        Order accepted = submissions.submit(orderOf(item()), null);
+
+        assertThat(accepted.getStatus()).isEqualTo(OrderStatus.PENDING);
+        orders.gate.countDown();
+        waitUntil(() -> orders.stored.get(accepted.getId()).getStatus() == OrderStatus.CONFIRMED);
+    }
+
+    @Test
+    void failedOrderIsCanceledWithTheReason() {
+        submissions = new OrderSubmissionService(orders, meterRegistry, 1, 1, Duration.ofMinutes(5));
+        orders.gate.countDown();
+
+        Order accepted = submissions.submit(orderOf(), null);
+
+        waitUntil(() -> orders.stored.get(accepted.getId()).getStatus() == OrderStatus.CANCELED);
+        assertThat(orders.stored.get(accepted.getId()).getFailureReason()).isEqualTo("Insufficient stock for product 7");
+    }
+
+    @Test
+    void submissionsBeyondTheQueueAreRefusedUntilItDrains() {
+        submissions = new OrderSubmissionService(orders, meterRegistry, 1, 2, Duration.ofMinutes(5));
+        for (int i = 0; i < 3; i++) {
+            submissions.submit(orderOf(item()), null);
+        }
+
+        assertThatThrownBy(() -> submissions.submit(orderOf(item()), null))
+                .isInstanceOfSatisfying(SubmissionQueueFullException.class, e -> {
+                    assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                    assertThat(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isNotNull();
+                });
+        assertThat(orders.stored).hasSize(3);
+        assertThat(meterRegistry.get("orders.async.rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("executor.queued").tag("name", "order-submissions").gauge().value()).isEqualTo(2);
+
+        orders.gate.countDown();
+        waitUntil(() -> meterRegistry.get("executor.completed").tag("name", "order-submissions")
+                .functionCounter().count() == 3);
+        assertThat(orders.stored.values()).extracting(Order::getStatus).containsOnly(OrderStatus.CONFIRMED);
+        assertThat(submissions.submit(orderOf(item()), null).getId()).isEqualTo(4L);
+    }
+
+    // As with an Idempotency-Key: the worker starts once the caller's transaction commits, a rollback frees the slot
+    @Test
+    void submissionsInsideATransactionWaitForItsOutcome() {
+        submissions = new OrderSubmissionService(orders, meterRegistry, 1, 1, Duration.ofMinutes(5));
+
+        Order rolledBack = inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK,
+                () -> submissions.submit(orderOf(item()), null));
+        Order committed = inTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> {
+            Order accepted = submissions.submit(orderOf(item()), null);
+            assertThat(meterRegistry.get("executor.active").tag("name", "order-submissions").gauge().value()).isZero();
+            return accepted;
+        });
+        submissions.submit(orderOf(item()), null);
+
+        assertThatThrownBy(() -> submissions.submit(orderOf(item()), null))
+                .isInstanceOf(SubmissionQueueFullException.class);
+        orders.gate.countDown();
+        waitUntil(() -> meterRegistry.get("executor.completed").tag("name", "order-submissions")
+                .functionCounter().count() == 2);
+        assertThat(orders.stored.get(committed.getId()).getStatus()).isEqualTo(OrderStatus.CONFIRMED);
+        assertThat(orders.stored.get(rolledBack.getId()).getStatus()).isEqualTo(OrderStatus.PENDING);
+    }
+
+    private static <T> T inTransaction(int outcome, Supplier<T> work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            T result = work.get();
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), outcome);
+            return result;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private static Order orderOf(OrderItem... items) {
+        return Order.builder().orderItems(List.of(items)).build();
+    }
+
+    private static OrderItem item() {
+        return OrderItem.builder().productId(7L).quantity(1).build();
+    }
+}
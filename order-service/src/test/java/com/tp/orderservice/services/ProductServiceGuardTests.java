@@ -0,0 +1,177 @@
+package com.tp.orderservice.services;
+
+import com.tp.orderservice.services.ProductServiceGuard.ProductServiceUnavailableException;
+import feign.FeignException;
+import feign.Request;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductServiceGuardTests {
+    private final CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+            .slidingWindowSize(4)
+            .minimumNumberOfCalls(4)
+            .failureRateThreshold(50)
+            .waitDurationInOpenState(Duration.ofMinutes(1))
+            .ignoreExceptions(FeignException.FeignClientException.class)
+            .build());
+    private final BulkheadRegistry bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+            .maxConcurrentCalls(2)
+            .maxWaitDuration(Duration.ZERO)
+            .build());
+    private final TimeLimiterRegistry timeLimiters = TimeLimiterRegistry.of(TimeLimiterConfig.custom()
+            .timeoutDuration(Duration.ofMillis(200))
+            .build());
+
+    private ExecutorService executor;
+    private ProductServiceGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        guard = new ProductServiceGuard(circuitBreakers, bulkheads, timeLimiters, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        guard.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void clientErrorsReachTheCallerAndDoNotOpenTheBreaker() {
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> guard.call(() -> {
+                throw error(409);
+            })).isInstanceOf(FeignException.Conflict.class);
+        }
+
+        assertThat(breaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(guard.call(() -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    void breakerOpensOnServerErrorsAndThenFailsFast() {
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> guard.call(() -> {
+                calls.incrementAndGet();
+                throw error(500);
+            })).isInstanceOf(FeignException.InternalServerError.class);
+        }
+
+        assertThat(breaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> guard.call(calls::incrementAndGet))
+                .isInstanceOf(ProductServiceUnavailableException.class)
+                .hasMessageContaining("circuit breaker is open");
+        assertThat(calls).hasValue(4);
+    }
+
+    @Test
+    void slowCallsTimeOutAndCountAsFailures() {
+        assertThatThrownBy(() -> guard.call(() -> {
+            Thread.sleep(5_000);
+            return "late";
+        })).isInstanceOf(ProductServiceUnavailableException.class)
+                .hasMessageContaining("did not answer in time");
+
+        assertThat(breaker().getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void timedOutCallsKeepTheirPermitUntilTheyAreInterrupted() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<String> slow = guard.submit(() -> {
+            try {
+                Thread.sleep(5_000);
+                return "late";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                // Still running: a Feign call only ends once its socket is closed
+                finish.await(5, TimeUnit.SECONDS);
+                throw e;
+            }
+        });
+
+        assertThatThrownBy(slow::get).hasCauseInstanceOf(ProductServiceUnavailableException.class);
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(bulkhead().getMetrics().getAvailableConcurrentCalls()).isEqualTo(1);
+
+        finish.countDown();
+        waitForAvailableCalls(2);
+    }
+
+    @Test
+    void callsRefusedByTheOpenBreakerGiveTheirPermitBack() {
+        breaker().transitionToOpenState();
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> guard.call(() -> "refused"))
+                    .hasMessageContaining("circuit breaker is open");
+        }
+        assertThat(bulkhead().getMetrics().getAvailableConcurrentCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void callsBeyondTheBulkheadAreRejectedWithoutCountingAgainstTheBreaker() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> first = guard.submit(() -> release.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = guard.submit(() -> release.await(5, TimeUnit.SECONDS));
+
+        assertThatThrownBy(() -> guard.call(() -> "third"))
+                .isInstanceOf(ProductServiceUnavailableException.class)
+                .hasMessageContaining("Too many concurrent");
+
+        release.countDown();
+        assertThat(first.get()).isTrue();
+        assertThat(second.get()).isTrue();
+        assertThat(breaker().getMetrics().getNumberOfFailedCalls()).isZero();
+        waitForAvailableCalls(2);
+    }
+
+    // Permits come back when the task ends, just after its result is delivered
+    private void waitForAvailableCalls(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead().getMetrics().getAvailableConcurrentCalls() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(bulkhead().getMetrics().getAvailableConcurrentCalls()).isEqualTo(expected);
+    }
+
+    private Bulkhead bulkhead() {
+        return bulkheads.bulkhead(ProductServiceGuard.INSTANCE);
+    }
+
+    private CircuitBreaker breaker() {
+        return circuitBreakers.circuitBreaker(ProductServiceGuard.INSTANCE);
+    }
+
+    private static FeignException error(int status) {
+        Request request = Request.create(Request.HttpMethod.GET, "/api/products/batch", Map.of(), null,
+                StandardCharsets.UTF_8, null);
+        return FeignException.errorStatus("ProductRestClient#getProductsByIds(Collection)",
+                feign.Response.builder().status(status).request(request).headers(Map.of()).build());
+    }
+}
@@ -5,13 +5,18 @@ import com.tp.productservice.services.ProductService;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 import java.util.List;
 
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 
-@SpringBootApplication
+// The outbox and its relay come from common-events
+@SpringBootApplication(scanBasePackages = {"com.tp.productservice", "com.tp.common.events"})
+@EntityScan({"com.tp.productservice", "com.tp.common.events"})
+@EnableJpaRepositories({"com.tp.productservice", "com.tp.common.events"})
 @EnableDiscoveryClient
 public class ProductServiceApplication {
 
@@ -0,0 +1,32 @@
+package com.tp.productservice.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Indexes JPA cannot declare. The catalog's name filter is a prefix LIKE, which a plain btree on name only serves
+// under the C collation; varchar_pattern_ops compares byte-wise, so the index serves 'Lap%' whatever the
+// database collation. The plain idx_product_name stays for the name sort, which this one cannot serve.
+@Component
+public class CatalogIndexes {
+    static final String NAME_PREFIX_INDEX =
+            "CREATE INDEX IF NOT EXISTS idx_product_name_prefix ON product (name varchar_pattern_ops)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // The EntityManagerFactory dependency makes this run after the schema update
+    public CatalogIndexes(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void create() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if ("PostgreSQL".equals(database)) {
+            jdbcTemplate.execute(NAME_PREFIX_INDEX);
+        }
+    }
+}
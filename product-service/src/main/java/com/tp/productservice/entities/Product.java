@@ -4,9 +4,19 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
+@Table(indexes = {
+        // Catalog listing: name sort, and price range filter / price sort.
+        // The name prefix filter has its own index, see CatalogIndexes
+        @Index(name = "idx_product_name", columnList = "name"),
+        @Index(name = "idx_product_price", columnList = "price")
+})
 @Getter
 @Setter
 @AllArgsConstructor
@@ -20,4 +30,9 @@ public class Product {
     private String description;
     private Double price;
     private Integer stockQuantity;
+
+    // Optimistic locking, also the source of the product's ETag. Rows created before the column existed start at 0.
+    @Version
+    @ColumnDefault("0")
+    private Long version;
 }
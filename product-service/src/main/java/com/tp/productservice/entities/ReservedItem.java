@@ -0,0 +1,15 @@
+package com.tp.productservice.entities;
+
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+@Embeddable
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReservedItem {
+    private Long productId;
+    private Integer quantity;
+}
@@ -0,0 +1,48 @@
+package com.tp.productservice.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.tp.productservice.enums.ReservationStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StockReservation implements Persistable<String> {
+    @Id
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    private ReservationStatus status;
+
+    private LocalDateTime createdAt;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "stock_reservation_item", joinColumns = @JoinColumn(name = "reservation_id"))
+    private List<ReservedItem> items;
+
+    // Ids are random UUIDs assigned before saving: a new reservation is inserted straight away instead of
+    // merged, which would first SELECT it (and its items) to find out it does not exist
+    @Transient
+    @Builder.Default
+    private boolean isNew = true;
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+}
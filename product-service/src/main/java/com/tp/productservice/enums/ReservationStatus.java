@@ -0,0 +1,5 @@
+package com.tp.productservice.enums;
+
+public enum ReservationStatus {
+    RESERVED, CONFIRMED, RELEASED
+}
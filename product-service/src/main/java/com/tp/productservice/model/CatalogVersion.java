@@ -0,0 +1,9 @@
+package com.tp.productservice.model;
+
+// Changes whenever a product is created (max id, count), updated (sum of versions) or deleted (count)
+public record CatalogVersion(Long count, Long maxId, Long versionSum) {
+
+    public String toETag() {
+        return "\"catalog-" + count + "-" + maxId + "-" + versionSum + "\"";
+    }
+}
@@ -0,0 +1,5 @@
+package com.tp.productservice.model;
+
+// Outcome of a catalog import: products written, of which newly created and updated
+public record ProductImportResult(long imported, long created, long updated) {
+}
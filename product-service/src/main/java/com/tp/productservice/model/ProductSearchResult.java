@@ -0,0 +1,4 @@
+package com.tp.productservice.model;
+
+public record ProductSearchResult(Long id, String name, Double price, double score) {
+}
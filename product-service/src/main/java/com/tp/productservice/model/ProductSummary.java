@@ -0,0 +1,5 @@
+package com.tp.productservice.model;
+
+// Listing projection of Product, without the description
+public record ProductSummary(Long id, String name, Double price, Integer stockQuantity) {
+}
@@ -0,0 +1,131 @@
+package com.tp.productservice.repository;
+
+import com.tp.productservice.entities.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Plain JDBC access for catalog imports and exports, where going through the persistence context
+// would cost one statement and one managed entity per product. PostgreSQL only (INSERT ... ON CONFLICT).
+@Repository
+public class ProductBulkRepository {
+    private static final String[] COLUMNS = {"id", "name", "description", "price", "stock_quantity", "version"};
+
+    // Fields left null keep their current value. Like the other bulk updates, it bumps the version itself
+    private static final String UPSERT = "INSERT INTO product (id, name, description, price, stock_quantity, version) "
+            + "VALUES (?, ?, ?, ?, ?, 0) "
+            + "ON CONFLICT (id) DO UPDATE SET "
+            + "name = COALESCE(EXCLUDED.name, product.name), "
+            + "description = COALESCE(EXCLUDED.description, product.description), "
+            + "price = COALESCE(EXCLUDED.price, product.price), "
+            + "stock_quantity = COALESCE(EXCLUDED.stock_quantity, product.stock_quantity), "
+            + "version = product.version + 1";
+
+    private static final String INSERT = "INSERT INTO product (name, description, price, stock_quantity, version) "
+            + "VALUES (?, ?, ?, ?, 0)";
+
+    // Explicit ids do not advance the identity sequence: it is moved past them if it fell behind
+    private static final String SYNC_ID_SEQUENCE = "SELECT setval(pg_get_serial_sequence('product', 'id'), max(id)) "
+            + "FROM product HAVING max(id) > (SELECT CASE WHEN is_called THEN last_value ELSE 0 END FROM %s)";
+
+    private static final String EXPORT = "SELECT id, name, description, price, stock_quantity, version FROM product ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate exportJdbcTemplate;
+
+    public ProductBulkRepository(DataSource dataSource,
+                                 @Value("${app.products.export.fetch-size:1000}") int exportFetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.exportJdbcTemplate = new JdbcTemplate(dataSource);
+        // Rows are pulled from a server-side cursor this many at a time (needs a transaction on PostgreSQL)
+        this.exportJdbcTemplate.setFetchSize(exportFetchSize);
+    }
+
+    // Products with an id are updated, or created with that id; the others are created. Of several products
+    // with the same id only the last is written, as ON CONFLICT cannot affect one row twice in a statement.
+    // Returns the stored rows, one JDBC batch per kind: new products have version 0
+    public List<Product> upsert(List<Product> products) {
+        Map<Long, Product> lastById = new LinkedHashMap<>();
+        products.stream().filter(product -> product.getId() != null)
+                .forEach(product -> lastById.put(product.getId(), product));
+        List<Product> withId = List.copyOf(lastById.values());
+        List<Product> withoutId = products.stream().filter(product -> product.getId() == null).toList();
+
+        List<Product> stored = new ArrayList<>(products.size());
+        if (!withId.isEmpty()) {
+            stored.addAll(executeBatch(UPSERT, withId, true));
+            String sequence = jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence('product', 'id')", String.class);
+            jdbcTemplate.queryForList(SYNC_ID_SEQUENCE.formatted(sequence));
+        }
+        if (!withoutId.isEmpty()) {
+            stored.addAll(executeBatch(INSERT, withoutId, false));
+        }
+        return stored;
+    }
+
+    // Streams the whole catalog in id order without holding it in memory; call inside a (read-only) transaction
+    public void forEach(Consumer<Product> action) {
+        exportJdbcTemplate.query(EXPORT, (RowCallbackHandler) rs -> action.accept(mapRow(rs)));
+    }
+
+    private List<Product> executeBatch(String sql, List<Product> products, boolean withId) {
+        KeyHolder stored = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sql, COLUMNS), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Product product = products.get(i);
+                int column = 1;
+                if (withId) {
+                    ps.setLong(column++, product.getId());
+                }
+                ps.setString(column++, product.getName());
+                ps.setString(column++, product.getDescription());
+                ps.setObject(column++, product.getPrice(), Types.DOUBLE);
+                ps.setObject(column, product.getStockQuantity(), Types.INTEGER);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return products.size();
+            }
+        }, stored);
+        return stored.getKeyList().stream().map(ProductBulkRepository::mapRow).toList();
+    }
+
+    private static Product mapRow(ResultSet rs) throws SQLException {
+        return Product.builder()
+                .id(rs.getLong("id"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .price(rs.getObject("price", Double.class))
+                .stockQuantity(rs.getObject("stock_quantity", Integer.class))
+                .version(rs.getLong("version"))
+                .build();
+    }
+
+    private static Product mapRow(Map<String, Object> row) {
+        return Product.builder()
+                .id(((Number) row.get("id")).longValue())
+                .name((String) row.get("name"))
+                .description((String) row.get("description"))
+                .price(row.get("price") != null ? ((Number) row.get("price")).doubleValue() : null)
+                .stockQuantity(row.get("stock_quantity") != null ? ((Number) row.get("stock_quantity")).intValue() : null)
+                .version(((Number) row.get("version")).longValue())
+                .build();
+    }
+}
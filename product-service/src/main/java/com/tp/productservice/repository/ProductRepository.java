@@ -1,7 +1,45 @@
 package com.tp.productservice.repository;
 
 import com.tp.productservice.entities.Product;
+import com.tp.productservice.model.CatalogVersion;
+import com.tp.productservice.model.ProductSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    // Null filters are ignored
+    String CATALOG_FILTER = "where (:namePrefix is null or p.name like concat(:namePrefix, '%') escape '\\') "
+            + "and (:minPrice is null or p.price >= :minPrice) "
+            + "and (:maxPrice is null or p.price <= :maxPrice) "
+            + "and (:inStockOnly = false or p.stockQuantity > 0)";
+
+    // Catalog listing, as lightweight projections
+    @Query(value = "select new com.tp.productservice.model.ProductSummary(p.id, p.name, p.price, p.stockQuantity) "
+            + "from Product p " + CATALOG_FILTER,
+            countQuery = "select count(p) from Product p " + CATALOG_FILTER)
+    Page<ProductSummary> findCatalog(@Param("namePrefix") String namePrefix,
+                                     @Param("minPrice") Double minPrice,
+                                     @Param("maxPrice") Double maxPrice,
+                                     @Param("inStockOnly") boolean inStockOnly,
+                                     Pageable pageable);
+
+    @Query("select new com.tp.productservice.model.CatalogVersion(count(p), coalesce(max(p.id), 0), coalesce(sum(p.version), 0)) "
+            + "from Product p")
+    CatalogVersion getCatalogVersion();
+
+    // Bulk updates bypass @Version, so they bump it themselves to keep ETags honest
+
+    // Conditional decrement, returns 0 when the product is missing or has too little stock
+    @Modifying
+    @Query("update Product p set p.stockQuantity = p.stockQuantity - :quantity, p.version = p.version + 1 where p.id = :id and p.stockQuantity >= :quantity")
+    int reserveStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("update Product p set p.stockQuantity = p.stockQuantity + :quantity, p.version = p.version + 1 where p.id = :id")
+    int restoreStock(@Param("id") Long id, @Param("quantity") int quantity);
 }
@@ -0,0 +1,23 @@
+package com.tp.productservice.repository;
+
+import com.tp.productservice.entities.StockReservation;
+import com.tp.productservice.enums.ReservationStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, String> {
+
+    // Compare-and-set on the status, so concurrent confirm/release calls cannot both win
+    @Modifying
+    @Query("update StockReservation r set r.status = :to where r.id = :id and r.status = :from")
+    int transition(@Param("id") String id, @Param("from") ReservationStatus from, @Param("to") ReservationStatus to);
+
+    List<StockReservation> findByStatusAndCreatedAtBeforeOrderByCreatedAt(ReservationStatus status, LocalDateTime cutoff,
+                                                                          Limit limit);
+}
@@ -0,0 +1,303 @@
+package com.tp.productservice.search;
+
+import com.tp.productservice.entities.Product;
+import com.tp.productservice.model.ProductSearchResult;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// In-memory inverted index over Product.name and Product.description.
+// Terms are lower-cased, accent-folded words; every query word matches indexed terms it is a prefix of,
+// and a product must match all query words. Score = sum of field weight * idf, exact matches count double.
+// Products are addressed by dense int slots so posting lists and scoring stay on primitive arrays.
+@Component
+public class ProductSearchIndex {
+    private static final float NAME_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    // Searches are CPU-bound, so more concurrent ones than cores gain nothing from keeping their work arrays
+    private static final int POOLED_SCRATCHES = Runtime.getRuntime().availableProcessors();
+
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+    private final List<IndexedProduct> slots = new ArrayList<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BlockingQueue<Scratch> scratches = new ArrayBlockingQueue<>(POOLED_SCRATCHES);
+
+    private record IndexedProduct(Long id, String name, Double price, Map<String, Float> terms) {
+    }
+
+    private record Hit(int slot, double score) {
+    }
+
+    public void rebuild(Collection<Product> catalog) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            slotsById.clear();
+            slots.clear();
+            freeSlots.clear();
+            catalog.forEach(this::addUnlocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(product.getId());
+            addUnlocked(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<ProductSearchResult> search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Scratch s = scratches.poll();
+        if (s == null) {
+            s = new Scratch();
+        }
+        lock.readLock().lock();
+        try {
+            s.ensureCapacity(slots.size());
+            int documentCount = slotsById.size();
+            int candidates = 0;
+
+            for (int w = 0; w < words.size(); w++) {
+                String word = words.get(w);
+                int wordStamp = ++s.generation;
+                int touched = 0;
+
+                // Best matching term per product for this word, over every indexed term starting with it
+                for (Map.Entry<String, Postings> term : postings.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()) {
+                    Postings list = term.getValue();
+                    double idf = Math.log(1.0 + (double) documentCount / list.size);
+                    double factor = term.getKey().length() == word.length() ? 1.0 : PREFIX_MATCH_FACTOR;
+                    for (int i = 0; i < list.size; i++) {
+                        int slot = list.slots[i];
+                        double score = list.weights[i] * idf * factor;
+                        if (s.wordStamp[slot] != wordStamp) {
+                            s.wordStamp[slot] = wordStamp;
+                            s.wordScore[slot] = score;
+                            s.touched[touched++] = slot;
+                        } else if (score > s.wordScore[slot]) {
+                            s.wordScore[slot] = score;
+                        }
+                    }
+                }
+
+                // AND semantics: a product stays a candidate only if it matched every word so far
+                if (w == 0) {
+                    for (int i = 0; i < touched; i++) {
+                        int slot = s.touched[i];
+                        s.matched[slot] = 1;
+                        s.total[slot] = s.wordScore[slot];
+                        s.candidates[candidates++] = slot;
+                    }
+                } else {
+                    for (int i = 0; i < touched; i++) {
+                        int slot = s.touched[i];
+                        if (s.matched[slot] == w) {
+                            s.matched[slot] = w + 1;
+                            s.total[slot] += s.wordScore[slot];
+                        }
+                    }
+                }
+                if (touched == 0) {
+                    clearMatches(s, candidates);
+                    return List.of();
+                }
+            }
+
+            List<ProductSearchResult> results = topHits(s, candidates, words.size(), limit);
+            clearMatches(s, candidates);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+            // Dropped when the pool is full: a burst of searches does not keep catalog-sized arrays alive
+            scratches.offer(s);
+        }
+    }
+
+    private List<ProductSearchResult> topHits(Scratch s, int candidates, int wordCount, int limit) {
+        Comparator<Hit> ranking = Comparator.comparingDouble(Hit::score)
+                .thenComparing(hit -> slots.get(hit.slot()).id(), Comparator.reverseOrder());
+        PriorityQueue<Hit> best = new PriorityQueue<>(ranking);
+        for (int i = 0; i < candidates; i++) {
+            int slot = s.candidates[i];
+            if (s.matched[slot] != wordCount) {
+                continue;
+            }
+            double score = s.total[slot];
+            if (best.size() < limit) {
+                best.add(new Hit(slot, score));
+            } else if (score >= best.peek().score()) {
+                best.add(new Hit(slot, score));
+                best.poll();
+            }
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(ranking.reversed());
+
+        List<ProductSearchResult> results = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            IndexedProduct product = slots.get(hit.slot());
+            results.add(new ProductSearchResult(product.id(), product.name(), product.price(), hit.score()));
+        }
+        return results;
+    }
+
+    private static void clearMatches(Scratch s, int candidates) {
+        for (int i = 0; i < candidates; i++) {
+            s.matched[s.candidates[i]] = 0;
+        }
+    }
+
+    private void addUnlocked(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        Map<String, Float> terms = new HashMap<>();
+        tokenize(product.getName()).forEach(term -> terms.merge(term, NAME_WEIGHT, Float::sum));
+        tokenize(product.getDescription()).forEach(term -> terms.merge(term, DESCRIPTION_WEIGHT, Float::sum));
+
+        IndexedProduct indexed = new IndexedProduct(product.getId(), product.getName(), product.getPrice(), terms);
+        int slot;
+        if (freeSlots.isEmpty()) {
+            slot = slots.size();
+            slots.add(indexed);
+        } else {
+            slot = freeSlots.pop();
+            slots.set(slot, indexed);
+        }
+        slotsById.put(product.getId(), slot);
+        terms.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new Postings()).add(slot, weight));
+    }
+
+    private void removeUnlocked(Long productId) {
+        Integer slot = slotsById.remove(productId);
+        if (slot == null) {
+            return;
+        }
+        for (String term : slots.get(slot).terms().keySet()) {
+            Postings list = postings.get(term);
+            list.remove(slot);
+            if (list.size == 0) {
+                postings.remove(term);
+            }
+        }
+        slots.set(slot, null);
+        freeSlots.push(slot);
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Unordered posting list: product slots and the term weight in each
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private float[] weights = new float[4];
+        private int size;
+
+        void add(int slot, float weight) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            slots[size] = slot;
+            weights[size] = weight;
+            size++;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    size--;
+                    slots[i] = slots[size];
+                    weights[i] = weights[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    // Work arrays indexed by slot, taken from the pool by one search at a time. wordStamp marks which slots were
+    // already scored for the current word; matched counts matched words and is reset after every search.
+    private static final class Scratch {
+        private int generation;
+        private int[] wordStamp = new int[0];
+        private double[] wordScore = new double[0];
+        private int[] matched = new int[0];
+        private double[] total = new double[0];
+        private int[] touched = new int[0];
+        private int[] candidates = new int[0];
+
+        void ensureCapacity(int capacity) {
+            if (wordStamp.length < capacity) {
+                int length = Math.max(capacity, wordStamp.length * 2);
+                wordStamp = Arrays.copyOf(wordStamp, length);
+                wordScore = Arrays.copyOf(wordScore, length);
+                matched = Arrays.copyOf(matched, length);
+                total = Arrays.copyOf(total, length);
+                touched = Arrays.copyOf(touched, length);
+                candidates = Arrays.copyOf(candidates, length);
+            }
+        }
+    }
+}
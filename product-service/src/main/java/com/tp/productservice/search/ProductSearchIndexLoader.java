@@ -0,0 +1,29 @@
+package com.tp.productservice.search;
+
+import com.tp.productservice.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+// Builds the search index from the database once the application is up; ProductService keeps it current afterwards
+@Component
+public class ProductSearchIndexLoader {
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndexLoader.class);
+
+    private final ProductRepository productRepository;
+    private final ProductSearchIndex searchIndex;
+
+    public ProductSearchIndexLoader(ProductRepository productRepository, ProductSearchIndex searchIndex) {
+        this.productRepository = productRepository;
+        this.searchIndex = searchIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        searchIndex.rebuild(productRepository.findAll());
+        log.info("Indexed {} products for search in {} ms", searchIndex.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
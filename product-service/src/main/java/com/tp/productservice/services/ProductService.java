@@ -1,27 +1,61 @@
 package com.tp.productservice.services;
 
+import com.tp.common.events.Outbox;
 import com.tp.productservice.entities.Product;
+import com.tp.productservice.model.ProductSummary;
+import com.tp.productservice.model.CatalogVersion;
+import com.tp.productservice.model.ProductSearchResult;
 import com.tp.productservice.repository.ProductRepository;
+import com.tp.productservice.search.ProductSearchIndex;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ProductService {
+    public static final String PRODUCT = "Product";
+    public static final String PRODUCT_CREATED = "ProductCreated";
+    public static final String PRODUCT_UPDATED = "ProductUpdated";
+    public static final String PRODUCT_DELETED = "ProductDeleted";
+
     private ProductRepository productRepository;
+    private final ProductSearchIndex searchIndex;
+    private final Outbox outbox;
 
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ProductSearchIndex searchIndex, Outbox outbox) {
         this.productRepository = productRepository;
+        this.searchIndex = searchIndex;
+        this.outbox = outbox;
     }
 
     public Product getProductById(Long id) {
         return productRepository.findById(id).orElse(null);
     }
 
+    public List<Product> getProductsByIds(Collection<Long> ids) {
+        return productRepository.findAllById(ids);
+    }
+
+    public CatalogVersion getCatalogVersion() {
+        return productRepository.getCatalogVersion();
+    }
+
+    // Writes record their event in the outbox within the same transaction (payload: the product, or its id on delete)
+    @Transactional
     public Product createProduct(Product product) {
-        return productRepository.save(product);
+        product.setVersion(null);
+        Product saved = productRepository.save(product);
+        searchIndex.index(saved);
+        outbox.record(PRODUCT, saved.getId(), PRODUCT_CREATED, saved);
+        return saved;
     }
 
+    @Transactional
     public Product updateProduct(Long id, Product productDetails) {
         Product product = productRepository.findById(id).orElse(null);
         if (product != null) {
@@ -29,18 +63,38 @@ public class ProductService {
             product.setDescription(productDetails.getDescription());
             product.setPrice(productDetails.getPrice());
             product.setStockQuantity(productDetails.getStockQuantity());
-            return productRepository.save(product);
+            // Flushed so the payload carries the incremented version
+            Product saved = productRepository.saveAndFlush(product);
+            searchIndex.index(saved);
+            outbox.record(PRODUCT, id, PRODUCT_UPDATED, saved);
+            return saved;
         }
         return null;
 
     }
 
+    @Transactional
     public void deleteProductById(Long id) {
         productRepository.deleteById(id);
+        searchIndex.remove(id);
+        outbox.record(PRODUCT, id, PRODUCT_DELETED, Map.of("id", id));
     }
 
     public List<Product> getAllProducts() {
         return productRepository.findAll();
     }
 
+    public List<ProductSearchResult> search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    public Page<ProductSummary> getCatalog(String namePrefix, Double minPrice, Double maxPrice,
+                                           boolean inStockOnly, Pageable pageable) {
+        String prefix = namePrefix == null || namePrefix.isBlank() ? null : escapeLike(namePrefix);
+        return productRepository.findCatalog(prefix, minPrice, maxPrice, inStockOnly, pageable);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 }
@@ -0,0 +1,172 @@
+package com.tp.productservice.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.tp.common.events.Outbox;
+import com.tp.productservice.entities.Product;
+import com.tp.productservice.model.ProductImportResult;
+import com.tp.productservice.repository.ProductBulkRepository;
+import com.tp.productservice.search.ProductSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Catalog import and export as streams of products, one per line (NDJSON) or per CSV row (with a header line).
+// Neither side holds the catalog in memory: imports are parsed row by row and written batch-size products at a
+// time, exports are written as rows come out of the database cursor.
+@Service
+public class ProductTransferService {
+    private static final Logger log = LoggerFactory.getLogger(ProductTransferService.class);
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private static final CsvSchema CSV_EXPORT = CsvSchema.builder()
+            .addColumn("id", CsvSchema.ColumnType.NUMBER)
+            .addColumn("name")
+            .addColumn("description")
+            .addColumn("price", CsvSchema.ColumnType.NUMBER)
+            .addColumn("stockQuantity", CsvSchema.ColumnType.NUMBER)
+            .addColumn("version", CsvSchema.ColumnType.NUMBER)
+            .build()
+            .withHeader();
+
+    public enum Format {
+        NDJSON(MediaType.APPLICATION_NDJSON_VALUE),
+        CSV(TEXT_CSV_VALUE);
+
+        private final String mediaType;
+
+        Format(String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public String mediaType() {
+            return mediaType;
+        }
+    }
+
+    private final ProductBulkRepository bulkRepository;
+    private final ProductSearchIndex searchIndex;
+    private final Outbox outbox;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper;
+    private final int batchSize;
+
+    public ProductTransferService(ProductBulkRepository bulkRepository, ProductSearchIndex searchIndex, Outbox outbox,
+                                  TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                                  @Value("${app.products.import.batch-size:500}") int batchSize) {
+        this.bulkRepository = bulkRepository;
+        this.searchIndex = searchIndex;
+        this.outbox = outbox;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        // Columns are matched by header name, so a file may carry any subset of them; empty cells are null
+        this.csvMapper = CsvMapper.builder()
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .enable(CsvParser.Feature.TRIM_SPACES)
+                .build();
+        this.batchSize = batchSize;
+    }
+
+    // Rows with an id update that product (fields left out keep their value), or create it with that id;
+    // rows without one create a product. Each batch commits on its own, together with its ProductCreated /
+    // ProductUpdated events, so a malformed row stops the import with the batches before it already stored.
+    public ProductImportResult importProducts(InputStream body, Format format) {
+        long created = 0;
+        long updated = 0;
+        try (MappingIterator<Product> rows = reader(format).readValues(body)) {
+            List<Product> batch = new ArrayList<>(batchSize);
+            while (rows.hasNextValue()) {
+                batch.add(rows.nextValue());
+                if (batch.size() == batchSize || !rows.hasNextValue()) {
+                    // Counted from the stored rows: repeated ids in a batch are written once
+                    List<Product> stored = write(batch);
+                    long batchCreated = stored.stream().filter(ProductTransferService::isNew).count();
+                    created += batchCreated;
+                    updated += stored.size() - batchCreated;
+                    batch.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            String line = e.getLocation() != null ? "Line " + e.getLocation().getLineNr() : "Invalid import";
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, line + ": " + e.getOriginalMessage()
+                    + " (" + (created + updated) + " products imported before it)", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Imported {} products ({} created, {} updated)", created + updated, created, updated);
+        return new ProductImportResult(created + updated, created, updated);
+    }
+
+    // The whole catalog in id order, from a single read-only transaction
+    public void exportProducts(OutputStream out, Format format) throws IOException {
+        SequenceWriter rows = writer(format).writeValues(out);
+        readOnlyTransactionTemplate.executeWithoutResult(status -> bulkRepository.forEach(product -> {
+            try {
+                rows.write(product);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        rows.flush();
+        if (format == Format.NDJSON) {
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    // Returns the stored rows
+    private List<Product> write(List<Product> batch) {
+        return transactionTemplate.execute(status -> {
+            List<Product> saved = bulkRepository.upsert(batch);
+            saved.forEach(searchIndex::index);
+            outbox.recordAll(ProductService.PRODUCT, saved, Product::getId, product -> isNew(product)
+                    ? ProductService.PRODUCT_CREATED : ProductService.PRODUCT_UPDATED);
+            return saved;
+        });
+    }
+
+    // Upserted rows start at version 0 and every update bumps it
+    private static boolean isNew(Product product) {
+        return product.getVersion() == 0;
+    }
+
+    private ObjectReader reader(Format format) {
+        return switch (format) {
+            case NDJSON -> objectMapper.readerFor(Product.class);
+            case CSV -> csvMapper.readerFor(Product.class).with(CsvSchema.emptySchema().withHeader());
+        };
+    }
+
+    // Rows are flushed as the output buffer fills, not one by one
+    private ObjectWriter writer(Format format) {
+        ObjectWriter writer = switch (format) {
+            case NDJSON -> objectMapper.writerFor(Product.class).withRootValueSeparator("\n");
+            case CSV -> csvMapper.writerFor(Product.class).with(CSV_EXPORT);
+        };
+        return writer.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+}
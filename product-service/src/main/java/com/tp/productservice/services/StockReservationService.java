@@ -0,0 +1,157 @@
+package com.tp.productservice.services;
+
+import com.tp.productservice.entities.ReservedItem;
+import com.tp.productservice.entities.StockReservation;
+import com.tp.productservice.enums.ReservationStatus;
+import com.tp.productservice.repository.ProductRepository;
+import com.tp.productservice.repository.StockReservationRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+@Service
+@Transactional
+public class StockReservationService {
+    private final ProductRepository productRepository;
+    private final StockReservationRepository reservationRepository;
+
+    public StockReservationService(ProductRepository productRepository,
+                                   StockReservationRepository reservationRepository) {
+        this.productRepository = productRepository;
+        this.reservationRepository = reservationRepository;
+    }
+
+    // All-or-nothing: one conditional UPDATE per product, and any shortfall rolls the whole transaction back
+    public StockReservation reserve(List<ReservedItem> requestedItems) {
+        return reserveAll(List.of(requestedItems == null ? List.of() : requestedItems)).get(0);
+    }
+
+    // One reservation per item list (one per order), taken together: stock is checked once per product for all
+    // of them, and either every reservation is made or none
+    public List<StockReservation> reserveAll(List<List<ReservedItem>> requestedItems) {
+        if (requestedItems == null || requestedItems.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No reservation requested");
+        }
+
+        // Quantities are summed per product, and rows are locked in id order so concurrent reservations cannot deadlock
+        List<Map<Long, Integer>> reservations = new ArrayList<>();
+        Map<Long, Integer> total = new TreeMap<>();
+        for (List<ReservedItem> items : requestedItems) {
+            if (items == null || items.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A reservation needs at least one item");
+            }
+            Map<Long, Integer> quantities = new TreeMap<>();
+            for (ReservedItem item : items) {
+                if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid reservation item");
+                }
+                quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+                total.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+            reservations.add(quantities);
+        }
+
+        total.forEach((productId, quantity) -> {
+            if (productRepository.reserveStock(productId, quantity) == 0) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Insufficient stock or unknown product: " + productId);
+            }
+        });
+
+        LocalDateTime now = LocalDateTime.now();
+        return reservationRepository.saveAll(reservations.stream()
+                .map(quantities -> StockReservation.builder()
+                        .id(UUID.randomUUID().toString())
+                        .status(ReservationStatus.RESERVED)
+                        .createdAt(now)
+                        .items(quantities.entrySet().stream()
+                                .map(e -> new ReservedItem(e.getKey(), e.getValue()))
+                                .toList())
+                        .build())
+                .toList());
+    }
+
+    public StockReservation confirm(String id) {
+        StockReservation reservation = getReservation(id);
+        if (reservation.getStatus() == ReservationStatus.CONFIRMED) {
+            return reservation;
+        }
+        if (reservationRepository.transition(id, ReservationStatus.RESERVED, ReservationStatus.CONFIRMED) == 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Reservation " + id + " was already released");
+        }
+        reservation.setStatus(ReservationStatus.CONFIRMED);
+        return reservation;
+    }
+
+    public List<StockReservation> confirmAll(List<String> ids) {
+        return ids.stream().map(this::confirm).toList();
+    }
+
+    // Gives back the stock of a reservation that was never confirmed; releasing twice is a no-op. A confirmed
+    // reservation belongs to an order, and only canceling that order gives its stock back (see cancel)
+    public StockReservation release(String id) {
+        StockReservation reservation = getReservation(id);
+        if (reservation.getStatus() == ReservationStatus.CONFIRMED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Reservation " + id + " is confirmed, only canceling its order gives the stock back");
+        }
+        return giveBackOrConflict(reservation);
+    }
+
+    public List<StockReservation> releaseAll(List<String> ids) {
+        return ids.stream().map(this::release).toList();
+    }
+
+    // The order was canceled: its stock is given back whether or not the reservation was confirmed
+    public StockReservation cancel(String id) {
+        return giveBackOrConflict(getReservation(id));
+    }
+
+    // Reservations still RESERVED after the TTL belong to orders that never committed (order-service stopped
+    // between reserve and confirm/release). Returns the number released; those confirmed meanwhile are skipped
+    public int releaseExpired(Duration ttl, int limit) {
+        List<StockReservation> expired = reservationRepository.findByStatusAndCreatedAtBeforeOrderByCreatedAt(
+                ReservationStatus.RESERVED, LocalDateTime.now().minus(ttl), Limit.of(limit));
+        int released = 0;
+        for (StockReservation reservation : expired) {
+            if (giveBack(reservation)) {
+                released++;
+            }
+        }
+        return released;
+    }
+
+    private StockReservation giveBackOrConflict(StockReservation reservation) {
+        if (reservation.getStatus() != ReservationStatus.RELEASED && !giveBack(reservation)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Reservation " + reservation.getId() + " changed concurrently, retry");
+        }
+        return reservation;
+    }
+
+    // Stock is only restored by the call that moves the reservation out of the status it was read in
+    private boolean giveBack(StockReservation reservation) {
+        if (reservationRepository.transition(reservation.getId(), reservation.getStatus(), ReservationStatus.RELEASED) == 0) {
+            return false;
+        }
+        reservation.getItems().forEach(item ->
+                productRepository.restoreStock(item.getProductId(), item.getQuantity()));
+        reservation.setStatus(ReservationStatus.RELEASED);
+        return true;
+    }
+
+    private StockReservation getReservation(String id) {
+        return reservationRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown reservation " + id));
+    }
+}
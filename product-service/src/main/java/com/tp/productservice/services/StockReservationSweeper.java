@@ -0,0 +1,64 @@
+package com.tp.productservice.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Gives back the stock of reservations left RESERVED for longer than the TTL. Every instance sweeps; the
+// status compare-and-set makes sure a reservation is only given back once
+@Component
+public class StockReservationSweeper {
+    private static final Logger log = LoggerFactory.getLogger(StockReservationSweeper.class);
+    private static final int BATCH_SIZE = 100;
+
+    private final StockReservationService reservationService;
+    private final Duration ttl;
+    private final Duration interval;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("reservation-sweeper").daemon().factory());
+
+    public StockReservationSweeper(StockReservationService reservationService,
+                                   @Value("${app.reservations.ttl:15m}") Duration ttl,
+                                   @Value("${app.reservations.sweep-interval:1m}") Duration interval) {
+        this.reservationService = reservationService;
+        this.ttl = ttl;
+        this.interval = interval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        sweeper.scheduleWithFixedDelay(this::sweep, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        sweeper.shutdownNow();
+    }
+
+    // One transaction per batch
+    int sweep() {
+        int total = 0;
+        try {
+            int released;
+            do {
+                released = reservationService.releaseExpired(ttl, BATCH_SIZE);
+                total += released;
+            } while (released == BATCH_SIZE);
+        } catch (RuntimeException e) {
+            log.warn("Reservation sweep failed: {}", e.getMessage());
+        }
+        if (total > 0) {
+            log.info("Released {} reservations left unconfirmed for more than {}", total, ttl);
+        }
+        return total;
+    }
+}
@@ -1,29 +1,120 @@
 package com.tp.productservice.web;
 
 import com.tp.productservice.entities.Product;
+import com.tp.productservice.model.ProductImportResult;
+import com.tp.productservice.model.ProductSearchResult;
+import com.tp.productservice.model.ProductSummary;
 import com.tp.productservice.services.ProductService;
+import com.tp.productservice.services.ProductTransferService;
+import com.tp.productservice.services.ProductTransferService.Format;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
 
+    // Upper bound on ids per batch lookup, keeps the IN clause and the response size reasonable
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "name", "price", "stockQuantity");
+
     private final ProductService productService;
+    private final ProductTransferService productTransferService;
+    private final Duration sharedMaxAge;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductTransferService productTransferService,
+                             @Value("${app.http.shared-max-age:10s}") Duration sharedMaxAge) {
         this.productService = productService;
+        this.productTransferService = productTransferService;
+        this.sharedMaxAge = sharedMaxAge;
     }
 
+    // Reads carry a strong ETag and are revalidated with If-None-Match; a match answers 304 before
+    // the body is loaded or serialized
     @GetMapping
-    public List<Product> getAllProducts() {
-        return productService.getAllProducts();
+    public ResponseEntity<List<Product>> getAllProducts(WebRequest request) {
+        String etag = productService.getCatalogVersion().toETag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return revalidated(etag).body(productService.getAllProducts());
+    }
+
+    // Paged catalog: GET /api/products?page=0&size=20&sort=price,desc&namePrefix=Lap&minPrice=10&maxPrice=100&inStock=true
+    @GetMapping(params = "page")
+    public ResponseEntity<Page<ProductSummary>> getCatalogPage(@RequestParam int page,
+                                                               @RequestParam(defaultValue = "20") int size,
+                                                               @RequestParam(defaultValue = "name") String sort,
+                                                               @RequestParam(required = false) String namePrefix,
+                                                               @RequestParam(required = false) Double minPrice,
+                                                               @RequestParam(required = false) Double maxPrice,
+                                                               @RequestParam(defaultValue = "false") boolean inStock,
+                                                               WebRequest request) {
+        // The page content is a function of the URL and the catalog, so the catalog version is a valid ETag
+        String etag = productService.getCatalogVersion().toETag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0),
+                Math.min(Math.max(size, 1), MAX_PAGE_SIZE), parseSort(sort));
+        return revalidated(etag).body(productService.getCatalog(namePrefix, minPrice, maxPrice, inStock, pageRequest));
     }
 
     @GetMapping("/{id}")
-    public Product getProductById(@PathVariable Long id) {
-        return productService.getProductById(id);
+    public ResponseEntity<Product> getProductById(@PathVariable Long id, WebRequest request) {
+        Product product = productService.getProductById(id);
+        if (product == null) {
+            return ResponseEntity.ok(null);
+        }
+        String etag = "\"" + product.getId() + "-" + product.getVersion() + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return revalidated(etag).body(product);
+    }
+
+    // Full-text search on name and description, served from the in-memory index
+    @GetMapping("/search")
+    public List<ProductSearchResult> search(@RequestParam("q") String query,
+                                            @RequestParam(defaultValue = "20") int limit) {
+        return productService.search(query, Math.min(Math.max(limit, 1), MAX_PAGE_SIZE));
+    }
+
+    // Whole catalog, streamed as it is read: GET /api/products/export?format=ndjson|csv
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "ndjson") String format) {
+        Format exportFormat = parseFormat(format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.mediaType()))
+                .body(out -> productTransferService.exportProducts(out, exportFormat));
+    }
+
+    @GetMapping("/batch")
+    public List<Product> getProductsByIds(@RequestParam List<Long> ids) {
+        return productService.getProductsByIds(checkBatchSize(ids));
+    }
+
+    // POST variant for id lists too long to fit in a query string
+    @PostMapping("/batch")
+    public List<Product> getProductsByIdsInBody(@RequestBody List<Long> ids) {
+        return productService.getProductsByIds(checkBatchSize(ids));
     }
 
     @PostMapping
@@ -31,6 +122,17 @@ public class ProductController {
         return productService.createProduct(product);
     }
 
+    // Catalog import, read from the request body as it arrives (same formats as the export)
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ProductImportResult importNdjson(InputStream body) {
+        return productTransferService.importProducts(body, Format.NDJSON);
+    }
+
+    @PostMapping(value = "/import", consumes = ProductTransferService.TEXT_CSV_VALUE)
+    public ProductImportResult importCsv(InputStream body) {
+        return productTransferService.importProducts(body, Format.CSV);
+    }
+
     @PutMapping("/{id}")
     public Product updateProduct(@PathVariable Long id,
                                  @RequestBody Product productDetails) {
@@ -41,4 +143,38 @@ public class ProductController {
     public void deleteProductById(@PathVariable Long id) {
         productService.deleteProductById(id);
     }
+
+    // Browsers revalidate every time; shared caches such as the gateway may reuse the response for shared-max-age
+    private ResponseEntity.BodyBuilder revalidated(String etag) {
+        return ResponseEntity.ok().eTag(etag)
+                .cacheControl(CacheControl.maxAge(Duration.ZERO).sMaxAge(sharedMaxAge));
+    }
+
+    private List<Long> checkBatchSize(List<Long> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_BATCH_SIZE + " ids per batch lookup");
+        }
+        return ids;
+    }
+
+    private static Format parseFormat(String format) {
+        try {
+            return Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown export format " + format);
+        }
+    }
+
+    // "field" or "field,asc|desc"; id is always added as a tie-breaker so pages are stable
+    private Sort parseSort(String sort) {
+        String[] parts = sort.split(",");
+        String field = parts[0].trim();
+        if (!SORTABLE_FIELDS.contains(field)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot sort by " + field);
+        }
+        Sort.Direction direction = parts.length > 1 && parts[1].trim().equalsIgnoreCase("desc")
+                ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return Sort.by(direction, field).and(Sort.by("id"));
+    }
 }
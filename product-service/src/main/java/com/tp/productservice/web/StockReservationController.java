@@ -0,0 +1,54 @@
+package com.tp.productservice.web;
+
+import com.tp.productservice.entities.StockReservation;
+import com.tp.productservice.services.StockReservationService;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/products/reservations")
+public class StockReservationController {
+
+    private final StockReservationService reservationService;
+
+    public StockReservationController(StockReservationService reservationService) {
+        this.reservationService = reservationService;
+    }
+
+    @PostMapping
+    public StockReservation reserve(@RequestBody StockReservation reservation) {
+        return reservationService.reserve(reservation.getItems());
+    }
+
+    // Reservations for several orders at once (bulk order creation), all or none
+    @PostMapping("/batch")
+    public List<StockReservation> reserveAll(@RequestBody List<StockReservation> reservations) {
+        return reservationService.reserveAll(reservations.stream().map(StockReservation::getItems).toList());
+    }
+
+    @PostMapping("/batch/confirm")
+    public List<StockReservation> confirmAll(@RequestBody List<String> ids) {
+        return reservationService.confirmAll(ids);
+    }
+
+    @PostMapping("/batch/release")
+    public List<StockReservation> releaseAll(@RequestBody List<String> ids) {
+        return reservationService.releaseAll(ids);
+    }
+
+    @PostMapping("/{id}/confirm")
+    public StockReservation confirm(@PathVariable String id) {
+        return reservationService.confirm(id);
+    }
+
+    @PostMapping("/{id}/release")
+    public StockReservation release(@PathVariable String id) {
+        return reservationService.release(id);
+    }
+
+    @PostMapping("/{id}/cancel")
+    public StockReservation cancel(@PathVariable String id) {
+        return reservationService.cancel(id);
+    }
+}
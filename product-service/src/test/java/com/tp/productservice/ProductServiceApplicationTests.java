@@ -3,7 +3,7 @@ package com.tp.productservice;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "SERVICE_CLIENT_SECRET=test-secret")
 class ProductServiceApplicationTests {
 
     @Test
@@ -0,0 +1,79 @@
+package com.tp.productservice.config;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Index use depends on the collation, so the catalog lives in a database whose collation is not C,
+// like a default en_US.UTF-8 install
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = CatalogIndexesTests.JpaConfig.class)
+class CatalogIndexesTests {
+    private static EmbeddedPostgres postgres;
+
+    @Configuration
+    @EntityScan("com.tp.productservice.entities")
+    @EnableJpaRepositories("com.tp.productservice.repository")
+    @Import(CatalogIndexes.class)
+    static class JpaConfig {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException, SQLException {
+        postgres = EmbeddedPostgres.start();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE catalog TEMPLATE template0 LC_COLLATE 'C.UTF-8' LC_CTYPE 'C.UTF-8'");
+        }
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "catalog"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        postgres.close();
+    }
+
+    // Same shape as ProductRepository.CATALOG_FILTER's name filter, planned for a bound prefix
+    @Test
+    void namePrefixFilterUsesThePatternIndex() {
+        jdbcTemplate.execute("INSERT INTO product (name, description, price, stock_quantity, version) "
+                + "SELECT 'Product ' || g, '', g, 1, 0 FROM generate_series(1, 10000) g");
+        jdbcTemplate.execute("INSERT INTO product (name, description, price, stock_quantity, version) "
+                + "VALUES ('Laptop', '', 1200, 1, 0), ('Laptop bag', '', 40, 1, 0)");
+        jdbcTemplate.execute("ANALYZE product");
+        jdbcTemplate.execute("PREPARE catalog(varchar) AS SELECT id, name FROM product "
+                + "WHERE ($1 IS NULL OR name LIKE ($1 || '%') ESCAPE '\\') ORDER BY name LIMIT 20");
+
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN EXECUTE catalog('Lap')", String.class);
+
+        assertThat(String.join("\n", plan)).contains("idx_product_name_prefix");
+    }
+}
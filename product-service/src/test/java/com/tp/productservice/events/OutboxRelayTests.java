@@ -0,0 +1,145 @@
+package com.tp.productservice.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.tp.common.events.DomainEvent;
+import com.tp.common.events.EventTransport;
+import com.tp.common.events.Outbox;
+import com.tp.common.events.OutboxRelay;
+import com.tp.common.events.OutboxRepository;
+import com.tp.productservice.entities.Product;
+import com.tp.productservice.search.ProductSearchIndex;
+import com.tp.productservice.services.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.application.name=product-service",
+        "app.events.relay.batch-size=2"
+})
+@ContextConfiguration(classes = OutboxRelayTests.Config.class)
+// The relay commits its own transactions, so the test must not wrap everything in one
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayTests {
+
+    @Configuration
+    @EntityScan({"com.tp.productservice.entities", "com.tp.common.events"})
+    @EnableJpaRepositories({"com.tp.productservice.repository", "com.tp.common.events"})
+    @Import({ProductService.class, ProductSearchIndex.class, Outbox.class, OutboxRelay.class})
+    static class Config {
+        @Bean
+        RecordingTransport transport() {
+            return new RecordingTransport();
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().registerModule(new JavaTimeModule());
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    static class RecordingTransport implements EventTransport {
+        final List<DomainEvent> delivered = new ArrayList<>();
+        boolean failing;
+
+        @Override
+        public void publish(List<DomainEvent> events) {
+            if (failing) {
+                throw new IllegalStateException("subscriber down");
+            }
+            delivered.addAll(events);
+        }
+    }
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OutboxRelay relay;
+
+    @Autowired
+    private Outbox outbox;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private RecordingTransport transport;
+
+    @AfterEach
+    void cleanUp() {
+        outboxRepository.deleteAll();
+        transport.delivered.clear();
+        transport.failing = false;
+    }
+
+    @Test
+    void productWritesArePublishedInOrderInBatches() {
+        Product laptop = productService.createProduct(product("Laptop"));
+        productService.updateProduct(laptop.getId(), product("Laptop Pro"));
+        productService.deleteProductById(laptop.getId());
+
+        assertThat(relay.relayBatch()).isEqualTo(2);
+        assertThat(relay.relayBatch()).isEqualTo(1);
+        assertThat(relay.relayBatch()).isZero();
+
+        assertThat(transport.delivered).extracting(DomainEvent::type)
+                .containsExactly(ProductService.PRODUCT_CREATED, ProductService.PRODUCT_UPDATED, ProductService.PRODUCT_DELETED);
+        DomainEvent updated = transport.delivered.get(1);
+        assertThat(updated.source()).isEqualTo("product-service");
+        assertThat(updated.aggregateId()).isEqualTo(laptop.getId().toString());
+        assertThat(updated.payload().get("name").asText()).isEqualTo("Laptop Pro");
+        assertThat(updated.payload().get("version").asLong()).isEqualTo(1);
+        assertThat(outboxRepository.findAll()).allMatch(event -> event.getPublishedAt() != null);
+    }
+
+    @Test
+    void failedBatchStaysPendingUntilDelivered() {
+        productService.createProduct(product("Phone"));
+        transport.failing = true;
+
+        assertThatThrownBy(() -> relay.relayBatch()).isInstanceOf(IllegalStateException.class);
+        assertThat(outboxRepository.findAll()).allMatch(event -> event.getPublishedAt() == null);
+
+        transport.failing = false;
+        assertThat(relay.relayBatch()).isEqualTo(1);
+        assertThat(transport.delivered).hasSize(1);
+    }
+
+    @Test
+    void eventsCanOnlyBeRecordedInsideTheWritingTransaction() {
+        assertThatThrownBy(() -> outbox.record("Product", 1L, "ProductUpdated", Map.of("id", 1L)))
+                .isInstanceOf(IllegalTransactionStateException.class);
+        assertThat(outboxRepository.count()).isZero();
+    }
+
+    private static Product product(String name) {
+        return Product.builder().name(name).description(name).price(10.0).stockQuantity(1).build();
+    }
+}
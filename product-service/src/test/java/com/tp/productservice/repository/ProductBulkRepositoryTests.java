@@ -0,0 +1,145 @@
+package com.tp.productservice.repository;
+
+import com.tp.productservice.entities.Product;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The upsert is PostgreSQL SQL, so it runs against an embedded PostgreSQL with the schema Hibernate generates
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ContextConfiguration(classes = ProductBulkRepositoryTests.JpaConfig.class)
+class ProductBulkRepositoryTests {
+    private static EmbeddedPostgres postgres;
+
+    @Configuration
+    @EntityScan("com.tp.productservice.entities")
+    @EnableJpaRepositories("com.tp.productservice.repository")
+    @Import(ProductBulkRepository.class)
+    static class JpaConfig {
+    }
+
+    @Autowired
+    private ProductBulkRepository bulkRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        postgres = EmbeddedPostgres.start();
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void newProductsGetGeneratedIdsAndVersionZero() {
+        List<Product> stored = bulkRepository.upsert(List.of(product(null, "Laptop", 1200.0, 10),
+                product(null, "Mouse", 20.0, 50)));
+
+        assertThat(stored).extracting(Product::getName).containsExactly("Laptop", "Mouse");
+        assertThat(stored).extracting(Product::getVersion).containsOnly(0L);
+        assertThat(stored.get(1).getId()).isGreaterThan(stored.get(0).getId());
+        assertThat(productRepository.findById(stored.get(0).getId())).get()
+                .extracting(Product::getStockQuantity).isEqualTo(10);
+    }
+
+    @Test
+    void updatesKeepOmittedFieldsAndBumpTheVersion() {
+        Long id = bulkRepository.upsert(List.of(product(null, "Laptop", 1200.0, 10))).get(0).getId();
+
+        Product updated = bulkRepository.upsert(List.of(product(id, null, 999.0, null))).get(0);
+
+        assertThat(updated.getId()).isEqualTo(id);
+        assertThat(updated.getName()).isEqualTo("Laptop");
+        assertThat(updated.getDescription()).isEqualTo("Laptop");
+        assertThat(updated.getPrice()).isEqualTo(999.0);
+        assertThat(updated.getStockQuantity()).isEqualTo(10);
+        assertThat(updated.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void explicitIdsMoveTheSequencePastThem() {
+        Product imported = bulkRepository.upsert(List.of(product(500L, "Imported", 10.0, 1))).get(0);
+        assertThat(imported.getVersion()).isZero();
+
+        Long generated = bulkRepository.upsert(List.of(product(null, "Created", 10.0, 1))).get(0).getId();
+        // A product saved through JPA uses the same identity column
+        Long saved = productRepository.saveAndFlush(product(null, "Saved", 10.0, 1)).getId();
+
+        assertThat(generated).isGreaterThan(500L);
+        assertThat(saved).isGreaterThan(generated);
+    }
+
+    @Test
+    void explicitIdsBelowTheSequenceLeaveItAlone() {
+        Long first = bulkRepository.upsert(List.of(product(null, "First", 10.0, 1))).get(0).getId();
+        Long second = bulkRepository.upsert(List.of(product(null, "Second", 10.0, 1))).get(0).getId();
+
+        bulkRepository.upsert(List.of(product(first, "First again", 10.0, 1)));
+
+        assertThat(bulkRepository.upsert(List.of(product(null, "Third", 10.0, 1))).get(0).getId())
+                .isEqualTo(second + 1);
+    }
+
+    @Test
+    void repeatedIdsInOneBatchKeepTheLastOccurrence() {
+        List<Product> stored = bulkRepository.upsert(List.of(product(42L, "Draft", 10.0, 1),
+                product(7L, "Other", 1.0, 1), product(42L, "Final", null, 5)));
+
+        assertThat(stored).extracting(Product::getId).containsExactly(42L, 7L);
+        assertThat(productRepository.findById(42L)).get().satisfies(product -> {
+            assertThat(product.getName()).isEqualTo("Final");
+            assertThat(product.getPrice()).isNull();
+            assertThat(product.getStockQuantity()).isEqualTo(5);
+            assertThat(product.getVersion()).isZero();
+        });
+    }
+
+    @Test
+    void mixedBatchesReturnEveryStoredRow() {
+        Long existing = bulkRepository.upsert(List.of(product(null, "Existing", 10.0, 1))).get(0).getId();
+
+        List<Product> stored = bulkRepository.upsert(List.of(product(null, "New", 5.0, 2),
+                product(existing, "Renamed", null, null)));
+
+        assertThat(stored).extracting(Product::getName).containsExactlyInAnyOrder("New", "Renamed");
+        List<Product> exported = new ArrayList<>();
+        bulkRepository.forEach(exported::add);
+        assertThat(exported).extracting(Product::getName).containsExactly("Renamed", "New");
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM product", Integer.class)).isEqualTo(2);
+    }
+
+    private static Product product(Long id, String name, Double price, Integer stock) {
+        return Product.builder().id(id).name(name).description(name).price(price).stockQuantity(stock).build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.tp.productservice.repository;
+
+import com.tp.productservice.entities.Product;
+import com.tp.productservice.model.ProductSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ContextConfiguration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@ContextConfiguration(classes = ProductRepositoryTests.JpaConfig.class)
+class ProductRepositoryTests {
+
+    // ProductServiceApplication needs the full service layer, so the JPA slice gets its own configuration
+    @Configuration
+    @EntityScan("com.tp.productservice.entities")
+    @EnableJpaRepositories("com.tp.productservice.repository")
+    static class JpaConfig {
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Long laptopId;
+
+    @BeforeEach
+    void setUp() {
+        laptopId = entityManager.persist(product("Laptop", 1200.0, 10)).getId();
+        entityManager.persist(product("Laptop bag", 40.0, 0));
+        entityManager.persist(product("Smartphone", 800.0, 50));
+        entityManager.persist(product("100%_cotton shirt", 20.0, 5));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void catalogWithoutFiltersReturnsEverything() {
+        Page<ProductSummary> page = productRepository.findCatalog(null, null, null, false,
+                PageRequest.of(0, 2, Sort.by("name")));
+
+        assertThat(page.getTotalElements()).isEqualTo(4);
+        assertThat(page.getContent()).extracting(ProductSummary::name)
+                .containsExactly("100%_cotton shirt", "Laptop");
+    }
+
+    @Test
+    void catalogAppliesNamePrefixPriceRangeAndStockFilters() {
+        assertThat(productRepository.findCatalog("Laptop", null, null, false, PageRequest.of(0, 10))
+                .getTotalElements()).isEqualTo(2);
+        assertThat(productRepository.findCatalog("Laptop", null, null, true, PageRequest.of(0, 10))
+                .getContent()).extracting(ProductSummary::name).containsExactly("Laptop");
+        assertThat(productRepository.findCatalog(null, 30.0, 900.0, false, PageRequest.of(0, 10, Sort.by("price")))
+                .getContent()).extracting(ProductSummary::name).containsExactly("Laptop bag", "Smartphone");
+    }
+
+    @Test
+    void catalogTreatsLikeWildcardsInPrefixLiterally() {
+        assertThat(productRepository.findCatalog("100\\%\\_", null, null, false, PageRequest.of(0, 10))
+                .getContent()).extracting(ProductSummary::name).containsExactly("100%_cotton shirt");
+        assertThat(productRepository.findCatalog("\\%", null, null, false, PageRequest.of(0, 10))
+                .getTotalElements()).isZero();
+    }
+
+    @Test
+    void reserveStockOnlyDecrementsWhenEnoughIsLeft() {
+        assertThat(productRepository.reserveStock(laptopId, 8)).isEqualTo(1);
+        assertThat(productRepository.reserveStock(laptopId, 3)).isZero();
+        entityManager.clear();
+
+        assertThat(productRepository.findById(laptopId)).get()
+                .extracting(Product::getStockQuantity).isEqualTo(2);
+    }
+
+    @Test
+    void catalogVersionChangesWithStockUpdates() {
+        String before = productRepository.getCatalogVersion().toETag();
+        productRepository.reserveStock(laptopId, 1);
+        entityManager.clear();
+
+        assertThat(productRepository.getCatalogVersion().toETag()).isNotEqualTo(before);
+        assertThat(productRepository.findById(laptopId)).get()
+                .extracting(Product::getVersion).isEqualTo(1L);
+    }
+
+    private static Product product(String name, double price, int stock) {
+        return Product.builder().name(name).description(name).price(price).stockQuantity(stock).build();
+    }
+}
@@ -0,0 +1,92 @@
+package com.tp.productservice.search;
+
+import com.tp.productservice.entities.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Query latency of ProductSearchIndex over a synthetic catalog.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.tp.productservice.search.ProductSearchIndexBenchmark
+// or from the IDE through main().
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSearchIndexBenchmark {
+    private static final String[] WORDS = {
+            "laptop", "smartphone", "tablet", "monitor", "keyboard", "mouse", "headset", "speaker", "camera",
+            "printer", "router", "charger", "cable", "adapter", "battery", "wireless", "gaming", "portable",
+            "ultra", "slim", "pro", "mini", "max", "black", "white", "silver", "bluetooth", "usb", "hdmi", "ssd"};
+
+    @Param({"10000", "100000"})
+    private int catalogSize;
+
+    private ProductSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void buildIndex() {
+        Random random = new Random(42);
+        List<Product> catalog = new ArrayList<>(catalogSize);
+        for (long id = 1; id <= catalogSize; id++) {
+            catalog.add(Product.builder()
+                    .id(id)
+                    .name(words(random, 3) + " " + id)
+                    .description(words(random, 12))
+                    .price(1.0 + random.nextInt(2000))
+                    .stockQuantity(random.nextInt(100))
+                    .build());
+        }
+        index = new ProductSearchIndex();
+        index.rebuild(catalog);
+    }
+
+    @Benchmark
+    public void exactWord(Blackhole blackhole) {
+        blackhole.consume(index.search("keyboard", 20));
+    }
+
+    @Benchmark
+    public void prefix(Blackhole blackhole) {
+        blackhole.consume(index.search("wire", 20));
+    }
+
+    @Benchmark
+    public void multiWord(Blackhole blackhole) {
+        blackhole.consume(index.search("gaming laptop slim", 20));
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProductSearchIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,66 @@
+package com.tp.productservice.search;
+
+import com.tp.productservice.entities.Product;
+import com.tp.productservice.model.ProductSearchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTests {
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.rebuild(List.of(
+                product(1L, "Laptop", "A high-performance laptop"),
+                product(2L, "Smartphone", "A latest model smartphone"),
+                product(3L, "Laptop bag", "Fits any 15 inch laptop"),
+                product(4L, "Café crème", "Mug for your morning coffee")));
+    }
+
+    @Test
+    void matchesWordPrefixesCaseAndAccentInsensitively() {
+        assertThat(ids(index.search("LAP", 10))).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(ids(index.search("creme", 10))).containsExactly(4L);
+        assertThat(ids(index.search("cafe", 10))).containsExactly(4L);
+    }
+
+    @Test
+    void requiresEveryQueryWordAndRanksNameMatchesFirst() {
+        assertThat(ids(index.search("laptop bag", 10))).containsExactly(3L);
+        index.index(product(5L, "Sleeve", "Neoprene sleeve for a laptop"));
+        // Products 1 and 3 have "laptop" in their name and description and tie, lower id first;
+        // product 5 only has it in its description
+        assertThat(ids(index.search("laptop", 10))).containsExactly(1L, 3L, 5L);
+        assertThat(index.search("laptop phone", 10)).isEmpty();
+    }
+
+    @Test
+    void followsIncrementalUpdatesAndDeletes() {
+        index.index(product(2L, "Tablet", "A large tablet"));
+        index.remove(1L);
+
+        assertThat(index.search("smartphone", 10)).isEmpty();
+        assertThat(ids(index.search("tab", 10))).containsExactly(2L);
+        assertThat(ids(index.search("laptop", 10))).containsExactly(3L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void honoursLimit() {
+        assertThat(index.search("a", 1)).hasSize(1);
+        assertThat(index.search("  ", 10)).isEmpty();
+    }
+
+    private static List<Long> ids(List<ProductSearchResult> results) {
+        return results.stream().map(ProductSearchResult::id).toList();
+    }
+
+    private static Product product(Long id, String name, String description) {
+        return Product.builder().id(id).name(name).description(description).price(10.0).stockQuantity(1).build();
+    }
+}
@@ -0,0 +1,221 @@
+package com.tp.productservice.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tp.common.events.Outbox;
+import com.tp.common.events.OutboxEvent;
+import com.tp.common.events.OutboxRepository;
+import com.tp.productservice.entities.Product;
+import com.tp.productservice.model.ProductImportResult;
+import com.tp.productservice.model.ProductSearchResult;
+import com.tp.productservice.repository.ProductBulkRepository;
+import com.tp.productservice.repository.ProductRepository;
+import com.tp.productservice.search.ProductSearchIndex;
+import com.tp.productservice.services.ProductTransferService.Format;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "app.products.import.batch-size=2"
+})
+@ContextConfiguration(classes = ProductTransferServiceTests.Config.class)
+class ProductTransferServiceTests {
+
+    @Configuration
+    @EntityScan({"com.tp.productservice.entities", "com.tp.common.events"})
+    @EnableJpaRepositories({"com.tp.productservice.repository", "com.tp.common.events"})
+    @Import({ProductTransferService.class, ProductSearchIndex.class, Outbox.class})
+    static class Config {
+        @Bean
+        InMemoryBulkRepository bulkRepository(DataSource dataSource) {
+            return new InMemoryBulkRepository(dataSource);
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+    }
+
+    // The upsert is PostgreSQL SQL (ON CONFLICT), so H2 gets an in-memory stand-in with the same semantics;
+    // exports still read the real table
+    static class InMemoryBulkRepository extends ProductBulkRepository {
+        final Map<Long, Product> products = new TreeMap<>();
+        final List<Integer> batches = new ArrayList<>();
+        private long nextId = 100;
+
+        InMemoryBulkRepository(DataSource dataSource) {
+            super(dataSource, 10);
+        }
+
+        @Override
+        public List<Product> upsert(List<Product> rows) {
+            batches.add(rows.size());
+            List<Product> stored = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                Product row = rows.get(i);
+                if (row.getId() != null && rows.subList(i + 1, rows.size()).stream()
+                        .anyMatch(later -> row.getId().equals(later.getId()))) {
+                    continue;
+                }
+                Product existing = row.getId() != null ? products.get(row.getId()) : null;
+                Product product = existing == null
+                        ? Product.builder().id(row.getId() != null ? row.getId() : nextId++).version(0L).build()
+                        : Product.builder().id(existing.getId()).name(existing.getName())
+                        .description(existing.getDescription()).price(existing.getPrice())
+                        .stockQuantity(existing.getStockQuantity()).version(existing.getVersion() + 1).build();
+                if (row.getName() != null) {
+                    product.setName(row.getName());
+                }
+                if (row.getDescription() != null) {
+                    product.setDescription(row.getDescription());
+                }
+                if (row.getPrice() != null) {
+                    product.setPrice(row.getPrice());
+                }
+                if (row.getStockQuantity() != null) {
+                    product.setStockQuantity(row.getStockQuantity());
+                }
+                products.put(product.getId(), product);
+                stored.add(product);
+            }
+            return stored;
+        }
+    }
+
+    @Autowired
+    private ProductTransferService transferService;
+
+    @Autowired
+    private InMemoryBulkRepository bulkRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        bulkRepository.products.clear();
+        bulkRepository.batches.clear();
+    }
+
+    @Test
+    void ndjsonImportIsWrittenInBatchesWithItsEvents() {
+        ProductImportResult result = transferService.importProducts(body("""
+                {"id": 1, "name": "Laptop", "description": "Gaming laptop", "price": 1200.0, "stockQuantity": 5}
+                {"name": "Mechanical keyboard", "price": 80.0, "stockQuantity": 20}
+                {"name": "Mouse", "price": 25.0}
+
+                {"id": 1, "price": 1100.0}
+                {"name": "Monitor", "price": 300.0, "stockQuantity": 3}
+                """), Format.NDJSON);
+
+        assertThat(result).isEqualTo(new ProductImportResult(5, 4, 1));
+        assertThat(bulkRepository.batches).containsExactly(2, 2, 1);
+        assertThat(bulkRepository.products.get(1L))
+                .extracting(Product::getName, Product::getPrice, Product::getVersion)
+                .containsExactly("Laptop", 1100.0, 1L);
+        assertThat(searchIndex.search("keyboard", 10)).extracting(ProductSearchResult::name)
+                .containsExactly("Mechanical keyboard");
+        assertThat(outboxRepository.findAll()).extracting(OutboxEvent::getType).containsExactly(
+                ProductService.PRODUCT_CREATED, ProductService.PRODUCT_CREATED, ProductService.PRODUCT_CREATED,
+                ProductService.PRODUCT_UPDATED, ProductService.PRODUCT_CREATED);
+    }
+
+    @Test
+    void repeatedIdsInABatchAreImportedOnce() {
+        ProductImportResult result = transferService.importProducts(body("""
+                {"id": 9, "name": "Draft", "price": 10.0}
+                {"id": 9, "name": "Final", "price": 12.0}
+                """), Format.NDJSON);
+
+        assertThat(result).isEqualTo(new ProductImportResult(1, 1, 0));
+        assertThat(bulkRepository.products.get(9L).getName()).isEqualTo("Final");
+    }
+
+    @Test
+    void csvColumnsAreMatchedByHeaderAndEmptyCellsKeepTheCurrentValue() {
+        transferService.importProducts(body("""
+                id,name,description,price,stockQuantity
+                7,"Desk lamp, LED",Warm white,35.5,12
+                """), Format.CSV);
+        transferService.importProducts(body("""
+                price,id,stockQuantity
+                29.9,7,
+                """), Format.CSV);
+
+        assertThat(bulkRepository.products.get(7L))
+                .extracting(Product::getName, Product::getDescription, Product::getPrice, Product::getStockQuantity)
+                .containsExactly("Desk lamp, LED", "Warm white", 29.9, 12);
+    }
+
+    @Test
+    void malformedRowStopsTheImportAfterTheBatchesBeforeIt() {
+        assertThatThrownBy(() -> transferService.importProducts(body("""
+                {"name": "Tablet", "price": 300.0}
+                {"name": "Phone", "price": 700.0}
+                {"name": "Charger", "price": 15.0}
+                {"name": "Cable", "price": "cheap"}
+                """), Format.NDJSON))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Line 4")
+                .hasMessageContaining("2 products imported before it");
+
+        assertThat(bulkRepository.products.values()).extracting(Product::getName).containsExactly("Tablet", "Phone");
+    }
+
+    @Test
+    void exportStreamsTheWholeCatalogInIdOrder() throws IOException {
+        productRepository.saveAllAndFlush(List.of(
+                Product.builder().name("Laptop").description("Gaming laptop").price(1200.0).stockQuantity(5).build(),
+                Product.builder().name("Desk lamp, LED").price(35.5).stockQuantity(0).build()));
+        List<Product> catalog = productRepository.findAll();
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        transferService.exportProducts(ndjson, Format.NDJSON);
+        assertThat(ndjson.toString(StandardCharsets.UTF_8).split("\n")).containsExactly(
+                "{\"id\":" + catalog.get(0).getId() + ",\"name\":\"Laptop\",\"description\":\"Gaming laptop\","
+                        + "\"price\":1200.0,\"stockQuantity\":5,\"version\":0}",
+                "{\"id\":" + catalog.get(1).getId() + ",\"name\":\"Desk lamp, LED\",\"description\":null,"
+                        + "\"price\":35.5,\"stockQuantity\":0,\"version\":0}");
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        transferService.exportProducts(csv, Format.CSV);
+        assertThat(csv.toString(StandardCharsets.UTF_8).split("\n")).containsExactly(
+                "id,name,description,price,stockQuantity,version",
+                catalog.get(0).getId() + ",Laptop,\"Gaming laptop\",1200.0,5,0",
+                catalog.get(1).getId() + ",\"Desk lamp, LED\",,35.5,0,0");
+    }
+
+    private static InputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
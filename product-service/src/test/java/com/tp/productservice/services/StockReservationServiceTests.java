@@ -0,0 +1,140 @@
+package com.tp.productservice.services;
+
+import com.tp.productservice.entities.Product;
+import com.tp.productservice.entities.ReservedItem;
+import com.tp.productservice.entities.StockReservation;
+import com.tp.productservice.enums.ReservationStatus;
+import com.tp.productservice.repository.ProductRepository;
+import com.tp.productservice.repository.StockReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
+@ContextConfiguration(classes = StockReservationServiceTests.Config.class)
+class StockReservationServiceTests {
+
+    @Configuration
+    @EntityScan("com.tp.productservice.entities")
+    @EnableJpaRepositories("com.tp.productservice.repository")
+    @Import(StockReservationService.class)
+    static class Config {
+    }
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Long laptopId;
+
+    @BeforeEach
+    void setUp() {
+        laptopId = entityManager.persist(Product.builder().name("Laptop").description("Laptop")
+                .price(1200.0).stockQuantity(10).build()).getId();
+        entityManager.flush();
+    }
+
+    @Test
+    void confirmedReservationsAreOnlyGivenBackByCancelingTheOrder() {
+        String id = reservationService.reserve(List.of(new ReservedItem(laptopId, 3))).getId();
+        reservationService.confirm(id);
+
+        assertThatThrownBy(() -> reservationService.release(id))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(stock()).isEqualTo(7);
+
+        assertThat(reservationService.cancel(id).getStatus()).isEqualTo(ReservationStatus.RELEASED);
+        assertThat(reservationService.cancel(id).getStatus()).isEqualTo(ReservationStatus.RELEASED);
+        assertThat(stock()).isEqualTo(10);
+    }
+
+    @Test
+    void batchesReserveEveryOrderOrNone() {
+        assertThatThrownBy(() -> reservationService.reserveAll(List.of(
+                List.of(new ReservedItem(laptopId, 6)), List.of(new ReservedItem(laptopId, 5)))))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(stock()).isEqualTo(10);
+
+        List<StockReservation> reserved = reservationService.reserveAll(List.of(
+                List.of(new ReservedItem(laptopId, 6)), List.of(new ReservedItem(laptopId, 1), new ReservedItem(laptopId, 2))));
+
+        assertThat(reserved).extracting(r -> r.getItems().get(0).getQuantity()).containsExactly(6, 3);
+        assertThat(stock()).isEqualTo(1);
+        reservationService.confirmAll(reserved.stream().map(StockReservation::getId).toList());
+        assertThat(reservationRepository.findAllById(reserved.stream().map(StockReservation::getId).toList()))
+                .extracting(StockReservation::getStatus).containsOnly(ReservationStatus.CONFIRMED);
+    }
+
+    @Test
+    void releaseGivesBackUnconfirmedStockOnce() {
+        String id = reservationService.reserve(List.of(new ReservedItem(laptopId, 3))).getId();
+
+        reservationService.release(id);
+        reservationService.release(id);
+
+        assertThat(stock()).isEqualTo(10);
+    }
+
+    @Test
+    void expiredReservationsAreReleasedButNotConfirmedOrRecentOnes() {
+        String expired = reservationService.reserve(List.of(new ReservedItem(laptopId, 1))).getId();
+        String confirmed = reservationService.reserve(List.of(new ReservedItem(laptopId, 2))).getId();
+        reservationService.confirm(confirmed);
+        String recent = reservationService.reserve(List.of(new ReservedItem(laptopId, 4))).getId();
+        age(expired);
+        age(confirmed);
+
+        assertThat(reservationService.releaseExpired(Duration.ofMinutes(15), 100)).isEqualTo(1);
+        entityManager.clear();
+
+        assertThat(reservationRepository.findById(expired)).get()
+                .extracting(StockReservation::getStatus).isEqualTo(ReservationStatus.RELEASED);
+        assertThat(reservationRepository.findById(confirmed)).get()
+                .extracting(StockReservation::getStatus).isEqualTo(ReservationStatus.CONFIRMED);
+        assertThat(reservationRepository.findById(recent)).get()
+                .extracting(StockReservation::getStatus).isEqualTo(ReservationStatus.RESERVED);
+        assertThat(stock()).isEqualTo(4);
+    }
+
+    private void age(String reservationId) {
+        entityManager.flush();
+        entityManager.getEntityManager()
+                .createQuery("update StockReservation r set r.createdAt = :createdAt where r.id = :id")
+                .setParameter("createdAt", LocalDateTime.now().minusHours(1))
+                .setParameter("id", reservationId)
+                .executeUpdate();
+        entityManager.clear();
+    }
+
+    private int stock() {
+        entityManager.flush();
+        entityManager.clear();
+        return productRepository.findById(laptopId).orElseThrow().getStockQuantity();
+    }
+}